@@ -0,0 +1,67 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Touches the classes competitive programming solutions commonly use, so that
+ * the class list the JDK's CDS archive is built from contains them.
+ */
+public class Warmup {
+
+    public static void main(String[] args) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+        StringTokenizer tokens = new StringTokenizer("1 2 3");
+        Scanner scanner = new Scanner(System.in);
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+
+        int[] numbers = new int[16];
+        while (tokens.hasMoreTokens()) {
+            numbers[Integer.parseInt(tokens.nextToken())] = 1;
+        }
+        Arrays.sort(numbers);
+        long[] longs = new long[16];
+        Arrays.fill(longs, Long.MAX_VALUE);
+
+        List<Integer> list = new ArrayList<>(List.of(3, 1, 2));
+        Collections.sort(list);
+        list.sort(Comparator.reverseOrder());
+        Map<String, Integer> map = new HashMap<>();
+        map.merge("a", 1, Integer::sum);
+        TreeMap<Integer, Integer> tree = new TreeMap<>(Map.of(1, 1, 2, 2));
+        tree.floorKey(2);
+        Set<Long> set = new HashSet<>(Set.of(1L));
+        TreeSet<Integer> treeSet = new TreeSet<>(list);
+        treeSet.ceiling(2);
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> Integer.compare(a[0], b[0]));
+        queue.add(new int[]{1, 2});
+        Deque<Integer> deque = new ArrayDeque<>();
+        deque.push(1);
+        BitSet bits = new BitSet();
+        bits.set(3);
+        LinkedList<Integer> linked = new LinkedList<>(list);
+        LinkedHashMap<Integer, Integer> ordered = new LinkedHashMap<>();
+        ordered.put(1, 1);
+
+        String joined = IntStream.range(0, 4).boxed().map(String::valueOf).collect(Collectors.joining(" "));
+        StringBuilder sb = new StringBuilder(joined).reverse();
+        BigInteger big = BigInteger.valueOf(2).pow(100).mod(BigInteger.TEN);
+        BigDecimal decimal = new BigDecimal("1.5").setScale(3);
+        out.println(String.format("%.6f %d %s %s", Math.sqrt(2), big.longValue(), decimal, sb));
+        out.printf("%s %s %s %s%n", map, set, deque, bits);
+        out.println(tree.size() + linked.size() + ordered.size() + queue.size() + Long.toString(longs[0]).length());
+
+        String line = reader.readLine();
+        if (line == null && !scanner.hasNext()) {
+            out.println(Objects.hash(1, 2));
+        }
+        out.flush();
+    }
+}
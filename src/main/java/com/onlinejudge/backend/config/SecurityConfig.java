@@ -5,8 +5,10 @@ import com.onlinejudge.backend.security.services.UserDetailsServiceImpl;
 import lombok.RequiredArgsConstructor;
 import com.onlinejudge.backend.security.jwt.AuthTokenFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -28,6 +30,7 @@ import java.util.Arrays;
 import java.util.List;
 
 @Configuration
+@Profile("!worker")
 @EnableWebSecurity
 @EnableMethodSecurity(prePostEnabled = true)
 
@@ -37,6 +40,9 @@ public class SecurityConfig {
     private final UserDetailsServiceImpl userDetailsService;
     private final AuthTokenFilter authTokenFilter;
 
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -60,10 +66,17 @@ public class SecurityConfig {
                                 "/", "/index.html", "/favicon.ico", "/error", "/static/**"
                         ).permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/users/*").permitAll()
+                        // Judging nodes fetch test data with the shared judge token, checked by TestBlobController
+                        .requestMatchers(HttpMethod.GET, "/internal/test-data/*").permitAll()
 
                         // 🔐 Only allow authenticated users to access/update their own profile
                         .requestMatchers(HttpMethod.GET, "/api/users/me").authenticated()
                         .requestMatchers(HttpMethod.POST, "/api/users/me").authenticated()
+                        // Probed by the load balancer without a login, on the public port as /livez and /readyz
+                        .requestMatchers("/actuator/health/**", "/livez", "/readyz").permitAll()
+                        // Scraped by Prometheus on the management port only, which is not published
+                        .requestMatchers(request -> request.getLocalPort() == managementPort
+                                && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
                         .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
@@ -103,7 +116,7 @@ public class SecurityConfig {
         config.setAllowedOriginPatterns(List.of("http://localhost:3000")); // <- more flexible
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
-        config.setExposedHeaders(List.of("Authorization", "Content-Type")); // <- Optional but useful
+        config.setExposedHeaders(List.of("Authorization", "Content-Type", "Retry-After")); // <- Optional but useful
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
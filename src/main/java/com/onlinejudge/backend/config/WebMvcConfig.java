@@ -1,12 +1,14 @@
 package com.onlinejudge.backend.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.servlet.config.annotation.*;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 @Configuration
+@Profile("!worker")
 public class WebMvcConfig implements WebMvcConfigurer {
 
     // File upload resource mapping
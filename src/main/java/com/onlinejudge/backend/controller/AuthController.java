@@ -11,6 +11,7 @@ import com.onlinejudge.backend.security.jwt.JwtUtils;
 import com.onlinejudge.backend.security.services.CustomUserDetails;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -21,6 +22,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
+@Profile("!worker")
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
 public class AuthController {
@@ -2,33 +2,45 @@ package com.onlinejudge.backend.controller;
 
 import com.onlinejudge.backend.model.Problem;
 import com.onlinejudge.backend.model.Role;
+import com.onlinejudge.backend.model.TestData;
 import com.onlinejudge.backend.model.User;
 import com.onlinejudge.backend.payload.APIResponse;
 import com.onlinejudge.backend.payload.ProblemAdminResponseDTO;
 import com.onlinejudge.backend.payload.ProblemResponseDTO;
+import com.onlinejudge.backend.payload.TestDataDTO;
 import com.onlinejudge.backend.service.ProblemService;
+import com.onlinejudge.backend.service.TestDataService;
 import com.onlinejudge.backend.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.security.Principal;
 import java.util.Comparator;
 import java.util.List;
 
 @RestController
+@Profile("!worker")
 @RequestMapping("/api/problems")
 @RequiredArgsConstructor
 public class ProblemController {
 
     private final ProblemService problemService;
     private final UserService userService;
+    private final TestDataService testDataService;
 
     @PostMapping("/create")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Problem> createProblem(@RequestBody Problem problem) {
+    public ResponseEntity<Problem> createProblem(@RequestBody Problem problem) throws IOException {
         Problem created = problemService.createProblem(problem);
         return ResponseEntity.ok(created);
     }
@@ -162,8 +174,53 @@ public class ProblemController {
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<String> deleteProblem(@PathVariable Long id) {
+    public ResponseEntity<String> deleteProblem(@PathVariable Long id) throws IOException {
         problemService.deleteProblem(id);
         return ResponseEntity.ok("Problem deleted successfully");
     }
+
+    // GET /api/problems/{id}/tests - System test metadata (sizes and hashes, no content)
+    @GetMapping("/{id}/tests")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<TestDataDTO>> getSystemTests(@PathVariable Long id) {
+        problemService.getProblemById(id);
+        List<TestDataDTO> dtoList = testDataService.getTests(id).stream()
+                .map(testDataService::mapToDTO)
+                .toList();
+        return ResponseEntity.ok(dtoList);
+    }
+
+    // POST /api/problems/{id}/tests - Append a system test uploaded as two files
+    @PostMapping(value = "/{id}/tests", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TestDataDTO> addSystemTest(@PathVariable Long id,
+                                                     @RequestParam("input") MultipartFile input,
+                                                     @RequestParam("output") MultipartFile output) throws IOException {
+        problemService.getProblemById(id);
+        try (InputStream in = input.getInputStream(); InputStream out = output.getInputStream()) {
+            TestData test = testDataService.addTest(id, in, out);
+            return new ResponseEntity<>(testDataService.mapToDTO(test), HttpStatus.CREATED);
+        }
+    }
+
+    // GET /api/problems/{id}/tests/{ordinal}/input (or /output) - Streams the file without buffering it
+    @GetMapping("/{id}/tests/{ordinal}/{part:input|output}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> downloadSystemTest(@PathVariable Long id,
+                                                                    @PathVariable int ordinal,
+                                                                    @PathVariable String part) {
+        TestData test = testDataService.getTest(id, ordinal);
+        boolean input = part.equals("input");
+        String hash = input ? test.getInputHash() : test.getOutputHash();
+        StreamingResponseBody body = out -> {
+            try (InputStream in = testDataService.open(hash)) {
+                in.transferTo(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_PLAIN)
+                .contentLength(input ? test.getInputSize() : test.getOutputSize())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + ordinal + (input ? ".in" : ".out") + "\"")
+                .body(body);
+    }
 }
@@ -0,0 +1,58 @@
+package com.onlinejudge.backend.controller;
+
+import com.onlinejudge.backend.model.Rejudge;
+import com.onlinejudge.backend.payload.request.RejudgeRequest;
+import com.onlinejudge.backend.payload.response.RejudgeResponseDTO;
+import com.onlinejudge.backend.security.services.CustomUserDetails;
+import com.onlinejudge.backend.service.RejudgeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@Profile("!worker")
+@RequestMapping("/api/rejudges")
+@RequiredArgsConstructor
+public class RejudgeController {
+
+    private final RejudgeService rejudgeService;
+
+    // POST /api/rejudges - Rejudge a problem's submissions or a list of submissions
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<RejudgeResponseDTO> startRejudge(@RequestBody RejudgeRequest request,
+                                                           @AuthenticationPrincipal CustomUserDetails userDetails) {
+        Rejudge rejudge = rejudgeService.start(userDetails.getUsername(),
+                request.getProblemId(), request.getSubmissionIds());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(rejudgeService.mapToDTO(rejudge));
+    }
+
+    // GET /api/rejudges - Most recent rejudges
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<RejudgeResponseDTO>> getRejudges() {
+        return ResponseEntity.ok(rejudgeService.getRecentRejudges().stream()
+                .map(rejudgeService::mapToDTO)
+                .toList());
+    }
+
+    // GET /api/rejudges/{id} - Progress of a rejudge
+    @GetMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<RejudgeResponseDTO> getRejudge(@PathVariable Long id) {
+        return ResponseEntity.ok(rejudgeService.mapToDTO(rejudgeService.getRejudge(id)));
+    }
+
+    // DELETE /api/rejudges/{id} - Cancel a running rejudge, leaving all verdicts as they were
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<RejudgeResponseDTO> cancelRejudge(@PathVariable Long id) {
+        return ResponseEntity.ok(rejudgeService.mapToDTO(rejudgeService.cancel(id)));
+    }
+}
@@ -0,0 +1,54 @@
+package com.onlinejudge.backend.controller;
+
+import com.onlinejudge.backend.exception.ResourceNotFoundException;
+import com.onlinejudge.backend.judge.AdmissionControl;
+import com.onlinejudge.backend.model.CustomRun;
+import com.onlinejudge.backend.model.User;
+import com.onlinejudge.backend.payload.APIResponse;
+import com.onlinejudge.backend.payload.request.CustomRunRequest;
+import com.onlinejudge.backend.repository.UserRepository;
+import com.onlinejudge.backend.security.services.CustomUserDetails;
+import com.onlinejudge.backend.service.CustomRunService;
+import jakarta.annotation.security.RolesAllowed;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@Profile("!worker")
+@RequestMapping("/api/runs")
+@RequiredArgsConstructor
+public class RunController {
+
+    private final CustomRunService customRunService;
+    private final UserRepository userRepository;
+    private final AdmissionControl admissionControl;
+
+    // POST /api/runs - Run code on custom input; poll GET /api/runs/{id} for the output
+    @PostMapping
+    @RolesAllowed({"ROLE_USER", "ROLE_ADMIN"})
+    public ResponseEntity<?> createRun(@RequestBody CustomRunRequest request,
+                                       @AuthenticationPrincipal CustomUserDetails userDetails) {
+        User user = userRepository.findById(userDetails.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userDetails.getId()));
+        admissionControl.admitRun(user.getId());
+
+        CustomRun run = customRunService.create(user, request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(customRunService.mapToDTO(run));
+    }
+
+    // GET /api/runs/{id} - Status and, once done, output of one of the user's runs
+    @GetMapping("/{id}")
+    @RolesAllowed({"ROLE_USER", "ROLE_ADMIN"})
+    public ResponseEntity<?> getRun(@PathVariable Long id,
+                                    @AuthenticationPrincipal CustomUserDetails userDetails) {
+        CustomRun run = customRunService.getRun(id);
+        if (!run.getUserId().equals(userDetails.getId())) {
+            return ResponseEntity.status(403).body(new APIResponse("Not allowed to view this resource", false));
+        }
+        return ResponseEntity.ok(customRunService.mapToDTO(run));
+    }
+}
@@ -0,0 +1,42 @@
+package com.onlinejudge.backend.controller;
+
+import com.onlinejudge.backend.service.TestBlobStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Test blobs for judging nodes without access to the blob directory; no login, the shared judge token instead
+@RestController
+@Profile("!worker")
+@RequestMapping("/internal/test-data")
+@RequiredArgsConstructor
+public class TestBlobController {
+
+    private final TestBlobStore blobStore;
+
+    // GET /internal/test-data/{hash} - Streams one blob by content hash
+    @GetMapping("/{hash}")
+    public ResponseEntity<StreamingResponseBody> getBlob(@PathVariable String hash,
+                                                         @RequestHeader(value = TestBlobStore.TOKEN_HEADER, required = false) String token)
+            throws IOException {
+        if (!blobStore.acceptsToken(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        InputStream in = blobStore.open(hash);
+        StreamingResponseBody body = out -> {
+            try (in) {
+                in.transferTo(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(body);
+    }
+}
@@ -10,6 +10,7 @@ import com.onlinejudge.backend.repository.UserRepository;
 import com.onlinejudge.backend.security.services.CustomUserDetails;
 import com.onlinejudge.backend.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +21,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 
 @RestController
+@Profile("!worker")
 @RequestMapping("/api/users")
 @RequiredArgsConstructor
 public class UserController {
@@ -0,0 +1,15 @@
+package com.onlinejudge.backend.exception;
+
+import lombok.Getter;
+
+@Getter
+public class JudgeOverloadedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public JudgeOverloadedException(long retryAfterSeconds) {
+        super("The judge is overloaded, please try again in " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
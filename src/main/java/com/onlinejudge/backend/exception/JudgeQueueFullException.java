@@ -0,0 +1,9 @@
+package com.onlinejudge.backend.exception;
+
+public class JudgeQueueFullException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public JudgeQueueFullException() {
+        super("Judge queue is full, please try again later");
+    }
+}
@@ -0,0 +1,15 @@
+package com.onlinejudge.backend.exception;
+
+import lombok.Getter;
+
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(long retryAfterSeconds) {
+        super("Too many submissions, please wait " + retryAfterSeconds + "s before submitting again");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,165 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.exception.JudgeOverloadedException;
+import com.onlinejudge.backend.exception.RateLimitExceededException;
+import com.onlinejudge.backend.model.JudgeLane;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a new live submission is accepted, before anything is
+ * stored. Two checks apply:
+ * <ul>
+ *     <li>A per-user token bucket. A user who submits too fast gets 429.</li>
+ *     <li>A limit on live jobs queued or being judged over all nodes. The
+ *     limit adapts additive-increase/multiplicative-decrease: it shrinks
+ *     whenever the oldest waiting job has waited longer than the target, and
+ *     grows while it is the bottleneck and waits stay short. Above the
+ *     limit the endpoint answers 503 rather than queueing work that would
+ *     only be judged after the user gave up.</li>
+ * </ul>
+ * Custom runs have their own, looser token bucket and no limit of their
+ * own here; their lane has a small capacity instead. Token buckets are per
+ * API node.
+ */
+@Component
+@Profile("!worker")
+public class AdmissionControl {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControl.class);
+    private static final double DECREASE_FACTOR = 0.75;
+
+    private final JudgeJobStore jobStore;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetWaitMs;
+    private final double tokensPerSecond;
+    private final int burst;
+    private final double runTokensPerSecond;
+    private final int runBurst;
+
+    private volatile int limit;
+    // Outstanding jobs at the last sample plus those admitted here since
+    private volatile long sampledOutstanding;
+    private final AtomicLong admittedSinceSample = new AtomicLong();
+    private final Map<Long, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<Long, TokenBucket> runBuckets = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public AdmissionControl(JudgeJobStore jobStore,
+                            MeterRegistry meterRegistry,
+                            @Value("${spring.app.judge.admission.initialLimit}") int initialLimit,
+                            @Value("${spring.app.judge.admission.minLimit}") int minLimit,
+                            @Value("${spring.app.judge.admission.maxLimit}") int maxLimit,
+                            @Value("${spring.app.judge.admission.targetWaitMs}") long targetWaitMs,
+                            @Value("${spring.app.judge.rateLimit.perMinute}") int perMinute,
+                            @Value("${spring.app.judge.rateLimit.burst}") int burst,
+                            @Value("${spring.app.judge.rateLimit.runsPerMinute}") int runsPerMinute,
+                            @Value("${spring.app.judge.rateLimit.runBurst}") int runBurst) {
+        this.jobStore = jobStore;
+        this.meterRegistry = meterRegistry;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetWaitMs = targetWaitMs;
+        this.tokensPerSecond = perMinute / 60.0;
+        this.burst = burst;
+        this.runTokensPerSecond = runsPerMinute / 60.0;
+        this.runBurst = runBurst;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+
+        Gauge.builder("judge.admission.limit", this, a -> a.limit)
+                .description("Live jobs allowed to be queued or judged at once")
+                .register(meterRegistry);
+        Gauge.builder("judge.admission.outstanding", this, AdmissionControl::outstanding)
+                .description("Live jobs queued or being judged, as last seen by this node")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws RateLimitExceededException if the user is submitting too fast
+     * @throws JudgeOverloadedException   if the judge cannot take more work now
+     */
+    public void admit(Long userId) {
+        // Checked first, so a submission turned away for overload costs the user no token
+        if (outstanding() >= limit) {
+            reject("overload");
+            throw new JudgeOverloadedException(Math.max(1, targetWaitMs / 1000));
+        }
+        long waitNanos = buckets.computeIfAbsent(userId, id -> new TokenBucket(burst, System::nanoTime)).take(tokensPerSecond, burst);
+        if (waitNanos > 0) {
+            reject("rate_limit");
+            throw new RateLimitExceededException(TokenBucket.retryAfterSeconds(waitNanos));
+        }
+        admittedSinceSample.incrementAndGet();
+    }
+
+    /**
+     * @throws RateLimitExceededException if the user is starting runs too fast
+     */
+    public void admitRun(Long userId) {
+        long waitNanos = runBuckets.computeIfAbsent(userId, id -> new TokenBucket(runBurst, System::nanoTime))
+                .take(runTokensPerSecond, runBurst);
+        if (waitNanos > 0) {
+            reject("run_rate_limit");
+            throw new RateLimitExceededException(TokenBucket.retryAfterSeconds(waitNanos));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.judge.admission.sampleMs}")
+    public void adjust() {
+        long outstanding;
+        Instant oldest;
+        try {
+            outstanding = jobStore.countOutstanding(JudgeLane.LIVE);
+            oldest = jobStore.oldestQueued(JudgeLane.LIVE);
+        } catch (RuntimeException e) {
+            logger.warn("Could not sample the judge queue for admission control", e);
+            return;
+        }
+        sampledOutstanding = outstanding;
+        admittedSinceSample.set(0);
+
+        long waitMs = oldest == null ? 0 : Duration.between(oldest, Instant.now()).toMillis();
+        int current = limit;
+        if (waitMs > targetWaitMs) {
+            limit = Math.max(minLimit, (int) (current * DECREASE_FACTOR));
+        } else if (outstanding >= current * 0.9) {
+            // Only grow while the limit is what holds submissions back
+            limit = Math.min(maxLimit, current + 1);
+        }
+        if (limit != current) {
+            logger.debug("Admission limit {} -> {} (outstanding {}, oldest wait {} ms)", current, limit, outstanding, waitMs);
+        }
+    }
+
+    // Full buckets carry no state worth keeping
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        buckets.values().removeIf(bucket -> bucket.isFull(tokensPerSecond, burst));
+        runBuckets.values().removeIf(bucket -> bucket.isFull(runTokensPerSecond, runBurst));
+    }
+
+    private long outstanding() {
+        return sampledOutstanding + admittedSinceSample.get();
+    }
+
+    private void reject(String reason) {
+        Counter.builder("judge.admission.rejected")
+                .description("Submissions turned away before being stored")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
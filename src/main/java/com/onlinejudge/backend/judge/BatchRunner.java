@@ -0,0 +1,44 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.checker.OutputChecker;
+import com.onlinejudge.backend.judge.sandbox.Sandbox;
+import com.onlinejudge.backend.judge.sandbox.SandboxSlot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Runs a range of staged tests against a compiled submission in one sandbox
+ * session: the tests are executed in order in the same leased slot, one
+ * exec each, and every verdict is reported as soon as the test finishes.
+ */
+@Component
+@ConditionalOnJudgeWorker
+@RequiredArgsConstructor
+public class BatchRunner {
+
+    private final TestRunner testRunner;
+
+    /**
+     * Runs tests {@code first..last} in order, passing every verdict to the
+     * listener as it arrives, and stops at the first test that is not accepted.
+     *
+     * @return the first failing verdict, or {@code null} if every test passed
+     */
+    public TestVerdict run(SandboxSlot slot, String workspace, String language, String filename,
+                           int first, int last, Limits limits, OutputChecker checker,
+                           Consumer<TestVerdict> listener)
+            throws IOException, InterruptedException {
+        for (int test = first; test <= last; test++) {
+            TestVerdict verdict = testRunner.run(slot, workspace, language, filename, test, limits, checker,
+                    proc -> { });
+            listener.accept(verdict);
+            if (!verdict.isAccepted()) {
+                return verdict;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,249 @@
+package com.onlinejudge.backend.judge;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the outcome of compiling a source: the files the compiler produced
+ * and the compile verdict and log, so a compile error is cached too. Entries
+ * are keyed by a hash of the language, its sandbox image and compile
+ * command, judge.sh and the source. Least recently used entries are
+ * evicted once the cache exceeds its byte budget.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class CompileCache {
+    private static final Logger logger = LoggerFactory.getLogger(CompileCache.class);
+
+    static final String VERDICT_FILE = "verdict.txt";
+    static final String COMPILE_LOG = "compile.txt";
+    private static final String ARTIFACTS = "files";
+
+    private final Path dir;
+    private final long maxBytes;
+    private final byte[] judgeScript;
+    private final MeterRegistry meterRegistry;
+
+    // Key -> entry size, in access order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    public CompileCache(MeterRegistry meterRegistry,
+                        @Value("${spring.app.judge.compileCache.dir}") String dir,
+                        @Value("${spring.app.judge.compileCache.maxBytes}") long maxBytes) throws IOException {
+        this.dir = Files.createDirectories(Paths.get(dir));
+        this.maxBytes = maxBytes;
+        this.meterRegistry = meterRegistry;
+        try (InputStream in = new ClassPathResource("judge.sh").getInputStream()) {
+            this.judgeScript = in.readAllBytes();
+        }
+        Gauge.builder("judge.compilecache.bytes", this, CompileCache::getTotalBytes)
+                .description("Bytes held by the compile cache")
+                .register(meterRegistry);
+        load();
+    }
+
+    public String keyFor(Language language, String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((language.getId() + "\0" + language.getImage() + "\0" + language.getCompile() + "\0"
+                    + language.isInProcess() + "\0").getBytes(StandardCharsets.UTF_8));
+            digest.update(judgeScript);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copies a cached compile outcome into the workspace.
+     *
+     * @return the cached compile verdict, or {@code null} on a miss
+     */
+    public String restore(String key, String language, Path workspace) {
+        Path entry = dir.resolve(key);
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                count(language, "miss");
+                return null;
+            }
+        }
+        try {
+            // Copies, not links: a sandbox that compiled them owns the files and could otherwise rewrite them
+            Path artifacts = entry.resolve(ARTIFACTS);
+            try (Stream<Path> files = Files.walk(artifacts)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Path target = workspace.resolve(artifacts.relativize(file).toString());
+                    if (Files.isDirectory(file)) {
+                        Files.createDirectories(target);
+                    } else {
+                        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                }
+            }
+            Files.copy(entry.resolve(COMPILE_LOG), workspace.resolve(COMPILE_LOG), StandardCopyOption.REPLACE_EXISTING);
+            String verdict = Files.readString(entry.resolve(VERDICT_FILE)).trim();
+            Files.writeString(workspace.resolve(VERDICT_FILE), verdict + "\n");
+            count(language, "hit");
+            return verdict;
+        } catch (IOException e) {
+            // Evicted while copying; compile as usual
+            count(language, "miss");
+            return null;
+        }
+    }
+
+    /**
+     * Stores what the compile step left in the workspace: every top-level
+     * file that did not exist before it ran, plus the verdict and log.
+     */
+    public void store(String key, Path workspace, Set<String> before, String verdict) throws IOException {
+        Path temp = dir.resolve(key + "." + UUID.randomUUID() + ".tmp");
+        Path artifacts = Files.createDirectories(temp.resolve(ARTIFACTS));
+        try {
+            try (Stream<Path> files = Files.list(workspace)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (Files.isRegularFile(file) && !before.contains(name)
+                            && !name.equals(VERDICT_FILE) && !name.equals(COMPILE_LOG)) {
+                        Files.copy(file, artifacts.resolve(name), StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                }
+            }
+            Path log = workspace.resolve(COMPILE_LOG);
+            if (Files.exists(log)) {
+                Files.copy(log, temp.resolve(COMPILE_LOG));
+            } else {
+                Files.createFile(temp.resolve(COMPILE_LOG));
+            }
+            Files.writeString(temp.resolve(VERDICT_FILE), verdict + "\n");
+
+            long size = sizeOf(temp);
+            try {
+                Files.move(temp, dir.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileSystemException e) {
+                // Another worker compiled the same source meanwhile
+                return;
+            }
+            synchronized (this) {
+                if (entries.put(key, size) == null) {
+                    totalBytes += size;
+                }
+                evict(key);
+            }
+        } finally {
+            deleteTree(temp);
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void count(String language, String result) {
+        Counter.builder("judge.compilecache.requests")
+                .description("Compile cache lookups")
+                .tag("language", language)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // Called with the lock held; never evicts the entry just added
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= eldest.getValue();
+            deleteTree(dir.resolve(eldest.getKey()));
+        }
+    }
+
+    // Rebuilds the index from disk, oldest first, and drops leftovers of interrupted stores
+    private void load() throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (Stream<Path> children = Files.list(dir)) {
+            children.forEach(found::add);
+        }
+        found.sort(Comparator.comparingLong(CompileCache::lastModified));
+        synchronized (this) {
+            for (Path entry : found) {
+                String name = entry.getFileName().toString();
+                if (name.endsWith(".tmp") || !Files.exists(entry.resolve(VERDICT_FILE))) {
+                    deleteTree(entry);
+                    continue;
+                }
+                long size = sizeOf(entry);
+                entries.put(name, size);
+                totalBytes += size;
+            }
+            evict(null);
+        }
+        logger.info("Compile cache at {} holds {} entries, {} bytes", dir, entries.size(), totalBytes);
+    }
+
+    private static long sizeOf(Path tree) throws IOException {
+        try (Stream<Path> files = Files.walk(tree)) {
+            long size = 0;
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    size += Files.size(file);
+                }
+            }
+            return size;
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteTree(Path tree) {
+        if (!Files.exists(tree)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(tree)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete {}", tree, e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.onlinejudge.backend.judge;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBooleanProperty;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks beans that only a judging node needs: the sandboxes, the caches and
+ * the worker taking jobs. Nodes started with
+ * {@code spring.app.judge.worker.enabled=false} serve the API and only
+ * enqueue submissions, so they need neither docker nor nsjail.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ConditionalOnBooleanProperty(name = "spring.app.judge.worker.enabled", matchIfMissing = true)
+public @interface ConditionalOnJudgeWorker {
+}
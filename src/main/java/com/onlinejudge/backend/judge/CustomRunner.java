@@ -0,0 +1,120 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.sandbox.CgroupMeter;
+import com.onlinejudge.backend.judge.sandbox.Processes;
+import com.onlinejudge.backend.judge.sandbox.Sandbox;
+import com.onlinejudge.backend.judge.sandbox.SandboxSlot;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a compiled program once on a user's own input, staged as test 1, and
+ * keeps what it printed. Output beyond the byte cap, or the problem's output
+ * limit if that is lower, stops the program.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class CustomRunner {
+
+    private static final int TEST = 1;
+
+    private final Sandbox sandbox;
+    private final CgroupMeter cgroupMeter;
+    private final int maxOutputBytes;
+
+    public CustomRunner(Sandbox sandbox,
+                        CgroupMeter cgroupMeter,
+                        @Value("${spring.app.judge.run.maxOutputBytes}") int maxOutputBytes) {
+        this.sandbox = sandbox;
+        this.cgroupMeter = cgroupMeter;
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Output {
+        private final String verdict;
+        private final String stdout;
+        private final String stderr;
+        private final long timeMs;
+        private final long memoryKb;
+        private final int exitCode;
+    }
+
+    public Output run(SandboxSlot slot, String workspace, String language, String filename, Limits limits)
+            throws IOException, InterruptedException {
+        Path folder = sandbox.getWorkDir().resolve(workspace);
+        long cap = Math.min(maxOutputBytes, limits.getOutputBytes());
+        CgroupMeter.Measurement measurement = cgroupMeter.start(slot);
+
+        Process proc = sandbox.run(slot, workspace, language, filename, TEST, limits, ProcessBuilder.Redirect.PIPE);
+        CompletableFuture<byte[]> stderr = new CompletableFuture<>();
+        Thread.ofVirtual().name("custom-run-stderr").start(() -> {
+            try {
+                stderr.complete(readCapped(proc.getErrorStream(), cap).bytes);
+            } catch (IOException e) {
+                stderr.complete(new byte[0]);
+            }
+        });
+
+        Captured stdout;
+        try {
+            stdout = readCapped(proc.getInputStream(), cap);
+        } catch (IOException e) {
+            sandbox.stop(slot, proc);
+            measurement.finish();
+            throw e;
+        }
+        if (stdout.truncated) {
+            sandbox.stop(slot, proc);
+        }
+        int status = Processes.awaitExit(proc);
+        RunUsage run = RunUsage.of(measurement.finish(), folder.resolve(TEST + ".stat"), -1);
+        String verdict = run.limitVerdict(stdout.truncated, status, limits);
+        if (verdict == null) {
+            verdict = "OK";
+        }
+
+        byte[] err;
+        try {
+            err = stderr.get(1, TimeUnit.SECONDS);
+        } catch (ExecutionException | java.util.concurrent.TimeoutException e) {
+            err = new byte[0];
+        }
+        return new Output(verdict, new String(stdout.bytes, StandardCharsets.UTF_8),
+                new String(err, StandardCharsets.UTF_8), run.getCpuTimeMs(), run.getMemoryKb(), status);
+    }
+
+    // Keeps the first cap bytes; stdout stops reading there, which lets the caller stop the program
+    private static Captured readCapped(InputStream in, long cap) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            int room = (int) (cap - out.size());
+            if (n > room) {
+                out.write(buffer, 0, room);
+                return new Captured(out.toByteArray(), true);
+            }
+            out.write(buffer, 0, n);
+        }
+        return new Captured(out.toByteArray(), false);
+    }
+
+    @AllArgsConstructor
+    private static class Captured {
+        private final byte[] bytes;
+        private final boolean truncated;
+    }
+}
@@ -0,0 +1,347 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.javac.JavacWorker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import javax.tools.ToolProvider;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Compiles Java submissions through {@code javax.tools} in long-lived
+ * compiler JVMs of the judge's own, instead of starting javac in a sandbox
+ * for every submission. Each compiler JVM compiles one source at a time
+ * under its own heap limit; their pool bounds how many compiles run at once
+ * and keeps the platform classes loaded and javac warm. Sources and class
+ * files only pass through pipes; the class files are written to the
+ * workspace, next to the verdict and log files judge.sh would leave.
+ * <p>
+ * Annotation processing is off and the class path empty, so compiling runs
+ * none of the submitted code. A compile that times out or fails kills its
+ * JVM, a fresh one takes its place, and the caller compiles in the sandbox
+ * instead. Sources over {@code maxSourceBytes} go to the sandbox directly.
+ * <p>
+ * As javac itself still parses untrusted input, the compiler JVMs are
+ * confined much like a sandbox: they run as an unprivileged user, switched to
+ * with {@code setpriv}, in a cgroup of their own pinned to the cores of
+ * {@code javac.cpus} with a CPU quota and one memory limit for all of them.
+ * If the cgroup cannot be set up, no compiler JVM is started and Java is
+ * compiled in the sandbox.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class JavaCompilerService {
+    private static final Logger logger = LoggerFactory.getLogger(JavaCompilerService.class);
+    private static final long CPU_PERIOD_US = 100_000;
+
+    private final List<String> command = new ArrayList<>();
+    private final int maxConcurrent;
+    private final long timeoutMs;
+    private final long maxSourceBytes;
+    private final Path workerClasses;
+    // Null if the compiler JVMs are not confined to a cgroup
+    private final Path cgroup;
+    private final LinkedBlockingQueue<CompilerProcess> idle = new LinkedBlockingQueue<>();
+    // Started and not yet retired, idle or compiling
+    private final Set<CompilerProcess> live = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("javac-", 1).factory());
+    private final MeterRegistry meterRegistry;
+    private volatile boolean stopped;
+
+    public JavaCompilerService(MeterRegistry meterRegistry,
+                               @Value("${spring.app.judge.javac.release}") int release,
+                               @Value("${spring.app.judge.javac.maxConcurrent}") int maxConcurrent,
+                               @Value("${spring.app.judge.javac.timeoutMs}") long timeoutMs,
+                               @Value("${spring.app.judge.javac.heapMb}") int heapMb,
+                               @Value("${spring.app.judge.javac.maxSourceBytes}") long maxSourceBytes,
+                               @Value("${spring.app.judge.javac.uid}") int uid,
+                               @Value("${spring.app.judge.javac.cgroup}") String cgroup,
+                               @Value("${spring.app.judge.javac.cpus}") String cpus,
+                               @Value("${spring.app.judge.javac.cpuPercent}") int cpuPercent,
+                               @Value("${spring.app.judge.javac.memoryMb}") int memoryMb) throws IOException {
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrent = maxConcurrent;
+        this.timeoutMs = timeoutMs;
+        this.maxSourceBytes = maxSourceBytes;
+        this.cgroup = cgroup.isBlank() ? null : Paths.get(cgroup);
+        if (ToolProvider.getSystemJavaCompiler() == null) {
+            logger.warn("No system Java compiler (running on a JRE?); Java is compiled in the sandbox");
+            this.workerClasses = null;
+            return;
+        }
+        if (this.cgroup != null) {
+            try {
+                prepareCgroup(this.cgroup, cpus, cpuPercent, memoryMb);
+            } catch (IOException e) {
+                logger.warn("Could not set up cgroup {} for the compiler JVMs; Java is compiled in the sandbox",
+                        this.cgroup, e);
+                this.workerClasses = null;
+                return;
+            }
+        }
+        this.workerClasses = extractWorkerClasses();
+        if (uid >= 0) {
+            // Fails unless the judge runs as root, and then no compiler JVM starts
+            command.addAll(List.of("setpriv", "--reuid=" + uid, "--regid=" + uid, "--clear-groups",
+                    "--no-new-privs", "--"));
+        }
+        command.addAll(List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx" + heapMb + "m", "-XX:+UseSerialGC", "-XX:+ExitOnOutOfMemoryError",
+                "-cp", workerClasses.toString(), JavacWorker.class.getName(),
+                "--release", String.valueOf(release), "-proc:none", "-implicit:none",
+                "-encoding", "UTF-8", "-Xmaxerrs", "100"));
+    }
+
+    // Starts the compiler JVMs once the node is up; until one is warm, Java is compiled in the sandbox
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (workerClasses == null) {
+            return;
+        }
+        for (int i = 0; i < maxConcurrent; i++) {
+            executor.execute(this::startProcess);
+        }
+    }
+
+    /**
+     * Compiles {@code filename} in the workspace and leaves the class files,
+     * verdict.txt and compile.txt there, as the compile step of judge.sh does.
+     *
+     * @return {@code false} if nothing was compiled because no compiler is
+     * available, all are busy, the source is too large or not UTF-8, or the
+     * compile timed out or failed
+     */
+    public boolean compile(Path workspace, String filename) throws IOException, InterruptedException {
+        if (workerClasses == null) {
+            return false;
+        }
+        Path sourceFile = workspace.resolve(filename);
+        if (Files.size(sourceFile) > maxSourceBytes) {
+            count("too_large");
+            return false;
+        }
+        String source;
+        try {
+            source = Files.readString(sourceFile);
+        } catch (CharacterCodingException e) {
+            // javac in the sandbox reports the bad bytes as a compile error
+            count("unreadable");
+            return false;
+        }
+        CompilerProcess process = idle.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (process == null) {
+            count("busy");
+            return false;
+        }
+
+        Result result;
+        Future<Result> future = executor.submit(() -> process.compile(filename, source));
+        try {
+            result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            retire(process);
+            count("timeout");
+            logger.warn("In-process compile of {} took over {} ms; its compiler JVM is replaced",
+                    workspace.getFileName(), timeoutMs);
+            return false;
+        } catch (ExecutionException e) {
+            retire(process);
+            count("failed");
+            logger.warn("In-process compile of {} failed; its compiler JVM is replaced",
+                    workspace.getFileName(), e.getCause());
+            return false;
+        } catch (InterruptedException e) {
+            // The request may be half sent; the process cannot be trusted with another
+            retire(process);
+            throw e;
+        }
+        idle.add(process);
+
+        for (Map.Entry<String, byte[]> entry : result.classes.entrySet()) {
+            Path classFile = workspace.resolve(entry.getKey().replace('.', '/') + ".class");
+            Files.createDirectories(classFile.getParent());
+            Files.write(classFile, entry.getValue());
+        }
+        Files.writeString(workspace.resolve(CompileCache.COMPILE_LOG), result.log);
+        Files.writeString(workspace.resolve(CompileCache.VERDICT_FILE),
+                (result.success ? "Compiled" : "Compilation Error") + "\n");
+        count(result.success ? "compiled" : "error");
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        stopped = true;
+        executor.shutdownNow();
+        live.forEach(CompilerProcess::kill);
+        if (workerClasses != null) {
+            FileSystemUtils.deleteRecursively(workerClasses);
+        }
+    }
+
+    // Starts a compiler JVM and adds it to the idle ones once it reports it is warm
+    private void startProcess() {
+        if (stopped) {
+            return;
+        }
+        CompilerProcess process;
+        try {
+            process = new CompilerProcess(new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start());
+        } catch (IOException e) {
+            logger.warn("Could not start a compiler JVM", e);
+            return;
+        }
+        live.add(process);
+        try {
+            // Before it reports ready, so it never compiles outside the cgroup
+            if (cgroup != null) {
+                Files.writeString(cgroup.resolve("cgroup.procs"), String.valueOf(process.pid()));
+            }
+            process.awaitReady();
+        } catch (IOException e) {
+            // Not retried: whatever broke this one would break the next
+            live.remove(process);
+            process.kill();
+            if (stopped) {
+                return;
+            }
+            logger.warn("Compiler JVM did not start; {} of {} left", live.size(), maxConcurrent, e);
+            return;
+        }
+        if (stopped) {
+            process.kill();
+            return;
+        }
+        idle.add(process);
+    }
+
+    private void retire(CompilerProcess process) {
+        live.remove(process);
+        process.kill();
+        executor.execute(this::startProcess);
+    }
+
+    // The worker's classes, copied out of the judge's class path (possibly a jar) so a plain JVM can load them
+    private static Path extractWorkerClasses() throws IOException {
+        String pkg = JavacWorker.class.getPackageName().replace('.', '/');
+        Path dir = Files.createTempDirectory("judge-javac-");
+        Path target = Files.createDirectories(dir.resolve(pkg));
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:" + pkg + "/*.class")) {
+            try (InputStream in = resource.getInputStream()) {
+                Files.copy(in, target.resolve(resource.getFilename()));
+            }
+        }
+        // Readable by the unprivileged user the compiler JVMs run as
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.setPosixFilePermissions(file,
+                        PosixFilePermissions.fromString(Files.isDirectory(file) ? "rwxr-xr-x" : "rw-r--r--"));
+            }
+        }
+        return dir;
+    }
+
+    // One cgroup v2 directory for all compiler JVMs, its limits shared between them
+    private static void prepareCgroup(Path cgroup, String cpus, int cpuPercent, int memoryMb) throws IOException {
+        Files.writeString(cgroup.getParent().resolve("cgroup.subtree_control"),
+                "+cpu +memory" + (cpus.isBlank() ? "" : " +cpuset"));
+        Files.createDirectories(cgroup);
+        if (!cpus.isBlank()) {
+            Files.writeString(cgroup.resolve("cpuset.cpus"), cpus);
+        }
+        Files.writeString(cgroup.resolve("cpu.max"), CPU_PERIOD_US * cpuPercent / 100 + " " + CPU_PERIOD_US);
+        Files.writeString(cgroup.resolve("memory.max"), String.valueOf(memoryMb * 1024L * 1024L));
+        Files.writeString(cgroup.resolve("memory.swap.max"), "0");
+    }
+
+    private void count(String result) {
+        Counter.builder("judge.javac.compiles")
+                .description("Java compiles in the judge's compiler JVMs")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private record Result(boolean success, String log, Map<String, byte[]> classes) {
+    }
+
+    // One compiler JVM, speaking the protocol described on JavacWorker
+    private static class CompilerProcess {
+        private final Process process;
+        private final DataOutputStream requests;
+        private final DataInputStream responses;
+
+        CompilerProcess(Process process) {
+            this.process = process;
+            this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        void awaitReady() throws IOException {
+            if (!responses.readBoolean()) {
+                throw new IOException("Compiler JVM reported it is not ready");
+            }
+        }
+
+        Result compile(String filename, String source) throws IOException {
+            requests.writeUTF(filename);
+            JavacWorker.writeBytes(requests, source.getBytes(StandardCharsets.UTF_8));
+            requests.flush();
+
+            boolean success = responses.readBoolean();
+            String log = new String(JavacWorker.readBytes(responses), StandardCharsets.UTF_8);
+            int count = responses.readInt();
+            Map<String, byte[]> classes = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                classes.put(responses.readUTF(), JavacWorker.readBytes(responses));
+            }
+            return new Result(success, log, classes);
+        }
+
+        long pid() {
+            return process.pid();
+        }
+
+        void kill() {
+            process.destroyForcibly();
+        }
+    }
+}
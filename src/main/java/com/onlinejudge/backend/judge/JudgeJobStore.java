@@ -0,0 +1,185 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.exception.JudgeQueueFullException;
+import com.onlinejudge.backend.model.JudgeJob;
+import com.onlinejudge.backend.model.JudgeJobStatus;
+import com.onlinejudge.backend.model.JudgeLane;
+import com.onlinejudge.backend.repository.JudgeJobRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Database side of the judge queue: the {@code judge_jobs} table shared by
+ * every node that judges. Each method is one short transaction, except those
+ * that must join the caller's.
+ */
+@Component
+public class JudgeJobStore {
+
+    private final JudgeJobRepository judgeJobRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int queueCapacity;
+    private final Map<String, Integer> laneCapacities;
+    private final int maxAttempts;
+
+    public JudgeJobStore(JudgeJobRepository judgeJobRepository,
+                         JdbcTemplate jdbcTemplate,
+                         @Value("${spring.app.judge.queueCapacity}") int queueCapacity,
+                         @Value("#{${spring.app.judge.lanes.capacity}}") Map<String, Integer> laneCapacities,
+                         @Value("${spring.app.judge.jobs.maxAttempts}") int maxAttempts) {
+        this.judgeJobRepository = judgeJobRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.queueCapacity = queueCapacity;
+        this.laneCapacities = laneCapacities;
+        this.maxAttempts = maxAttempts;
+    }
+
+    // Tables created before custom runs had a mandatory submission; the schema update never relaxes that
+    @PostConstruct
+    public void allowJobsWithoutSubmission() {
+        List<String> nullable = jdbcTemplate.queryForList("SELECT is_nullable FROM information_schema.columns "
+                + "WHERE table_name = 'judge_jobs' AND column_name = 'submission_id'", String.class);
+        if (nullable.contains("NO")) {
+            jdbcTemplate.execute("ALTER TABLE judge_jobs ALTER COLUMN submission_id DROP NOT NULL");
+        }
+    }
+
+    /**
+     * Queues a job for a submission or a custom run. Each lane has its own
+     * capacity; the weight is the user's share of the lane, at least 1.
+     */
+    @Transactional
+    public JudgeJob enqueue(JudgeJob job) {
+        int capacity = laneCapacities.getOrDefault(job.getLane().name(), queueCapacity);
+        // Until commit, so API nodes enqueueing at once cannot all pass the check and overfill the lane
+        jdbcTemplate.queryForList("SELECT 1 FROM pg_advisory_xact_lock(hashtext(?))", Integer.class,
+                "judge_jobs." + job.getLane().name());
+        if (judgeJobRepository.countByStatusAndLane(JudgeJobStatus.QUEUED, job.getLane()) >= capacity) {
+            throw new JudgeQueueFullException();
+        }
+        job.setWeight(Math.max(1, job.getWeight()));
+        job.setStatus(JudgeJobStatus.QUEUED);
+        job.setCreatedAt(Instant.now());
+        return judgeJobRepository.save(job);
+    }
+
+    // Together with marking the rejudge item queued
+    @Transactional(propagation = Propagation.MANDATORY)
+    public JudgeJob enqueueRejudge(Long submissionId, Long rejudgeId) {
+        List<String> language = jdbcTemplate.queryForList("SELECT language FROM submissions WHERE id = ?",
+                String.class, submissionId);
+        return judgeJobRepository.save(JudgeJob.builder()
+                .submissionId(submissionId)
+                .lane(JudgeLane.REJUDGE)
+                .language(language.isEmpty() ? null : language.get(0))
+                .weight(1)
+                .rejudgeId(rejudgeId)
+                .status(JudgeJobStatus.QUEUED)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    /**
+     * Takes up to {@code max} queued jobs of the lane and the given languages
+     * for this node, in fair order.
+     */
+    @Transactional
+    public List<JudgeJob> claim(String owner, JudgeLane lane, Collection<String> languages, int max, Duration lease) {
+        List<JudgeJob> jobs = judgeJobRepository.lockQueued(lane.name(), languages, max);
+        Instant until = Instant.now().plus(lease);
+        for (JudgeJob job : jobs) {
+            job.setStatus(JudgeJobStatus.RUNNING);
+            job.setLeaseOwner(owner);
+            job.setLeaseExpiresAt(until);
+            job.setAttempts(job.getAttempts() + 1);
+        }
+        return judgeJobRepository.saveAll(jobs);
+    }
+
+    @Transactional
+    public void heartbeat(String owner, Collection<Long> jobIds, Duration lease) {
+        if (!jobIds.isEmpty()) {
+            judgeJobRepository.extendLeases(owner, jobIds, Instant.now().plus(lease), JudgeJobStatus.RUNNING);
+        }
+    }
+
+    @Transactional
+    public void complete(JudgeJob job, String owner) {
+        judgeJobRepository.deleteOwned(job.getId(), owner);
+    }
+
+    // Hands one job back without judging it, e.g. because no sandbox could be leased for it
+    @Transactional
+    public void requeue(JudgeJob job, String owner) {
+        judgeJobRepository.requeueOwned(job.getId(), owner, JudgeJobStatus.QUEUED);
+    }
+
+    // Hands this node's jobs back, e.g. on shutdown, instead of waiting for their leases to run out
+    @Transactional
+    public int release(String owner) {
+        return judgeJobRepository.requeueOwnedBy(owner, JudgeJobStatus.QUEUED, JudgeJobStatus.RUNNING);
+    }
+
+    /**
+     * Queues jobs whose node stopped heartbeating again, and drops those that
+     * have already been claimed {@code maxAttempts} times.
+     *
+     * @return the dropped jobs
+     */
+    @Transactional
+    public List<JudgeJob> reapExpired() {
+        List<JudgeJob> abandoned = new ArrayList<>();
+        for (JudgeJob job : judgeJobRepository.lockExpired(Instant.now())) {
+            if (job.getAttempts() >= maxAttempts) {
+                abandoned.add(job);
+                judgeJobRepository.delete(job);
+            } else {
+                job.setStatus(JudgeJobStatus.QUEUED);
+                job.setLeaseOwner(null);
+                job.setLeaseExpiresAt(null);
+            }
+        }
+        return abandoned;
+    }
+
+    @Transactional
+    public int recoverPending() {
+        return judgeJobRepository.enqueueOrphanedPending();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int dropQueuedOfRejudge(Long rejudgeId) {
+        return judgeJobRepository.deleteQueuedOfRejudge(rejudgeId, JudgeJobStatus.QUEUED);
+    }
+
+    public long countOfRejudge(Long rejudgeId) {
+        return judgeJobRepository.countByRejudgeId(rejudgeId);
+    }
+
+    // Queued and running
+    public long countOutstanding(JudgeLane lane) {
+        return judgeJobRepository.countByLane(lane);
+    }
+
+    /**
+     * @return when the longest waiting job of the lane was queued, or {@code null} if none is waiting
+     */
+    public Instant oldestQueued(JudgeLane lane) {
+        return judgeJobRepository.findOldestQueued(lane, JudgeJobStatus.QUEUED);
+    }
+
+    public long countQueued(JudgeLane lane) {
+        return judgeJobRepository.countByStatusAndLane(JudgeJobStatus.QUEUED, lane);
+    }
+}
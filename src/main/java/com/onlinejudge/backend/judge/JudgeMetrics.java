@@ -0,0 +1,99 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.sandbox.Sandbox;
+import com.onlinejudge.backend.model.JudgeLane;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for each stage a submission passes through on a judging node, so
+ * slow judging can be traced to the queue, the sandboxes, the compiler, the
+ * tests or the database. All timers publish histograms for percentiles and
+ * are tagged by language and, where there is one, verdict.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class JudgeMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public JudgeMetrics(MeterRegistry meterRegistry, Sandbox sandbox) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("judge.sandboxes.leased", sandbox, Sandbox::leasedSlots)
+                .description("Sandbox slots currently leased, including extra ones for parallel tests")
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void queueWait(JudgeLane lane, String language, Duration wait) {
+        Timer.builder("judge.queue.wait")
+                .description("Time from enqueueing a job until a worker picks it up")
+                .tag("lane", lane.name())
+                .tag("language", language)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(wait);
+    }
+
+    public void lease(Timer.Sample sample, String language) {
+        sample.stop(timer("judge.sandbox.lease", "Time spent waiting for a sandbox slot", language, null));
+    }
+
+    public void compile(Timer.Sample sample, String language, String verdict, boolean cached) {
+        sample.stop(Timer.builder("judge.compile")
+                .description("Compile step, including restoring from the compile cache")
+                .tag("language", language)
+                .tag("verdict", verdictTag(verdict))
+                .tag("cached", String.valueOf(cached))
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    public void testRun(String language, String verdict, long nanos) {
+        timer("judge.test.run", "One test, from starting the program until it exited",
+                language, verdict).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Output is compared while the program runs, so this is only the part of
+     * the comparison left over after the program exited.
+     */
+    public void compare(String language, long nanos) {
+        timer("judge.test.compare", "Output comparison still running after the program exited",
+                language, null).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void verdictWrite(Timer.Sample sample, String language, String verdict) {
+        sample.stop(timer("judge.verdict.write", "Storing the verdict and test results", language, verdict));
+    }
+
+    public void submission(Timer.Sample sample, String language, String verdict) {
+        sample.stop(timer("judge.submission", "Judging a submission from workspace setup to stored verdict",
+                language, verdict));
+    }
+
+    private Timer timer(String name, String description, String language, String verdict) {
+        Timer.Builder builder = Timer.builder(name)
+                .description(description)
+                .tag("language", language)
+                .publishPercentileHistogram();
+        if (verdict != null) {
+            builder.tag("verdict", verdictTag(verdict));
+        }
+        return builder.register(meterRegistry);
+    }
+
+    // "Wrong Answer on system test #7" -> "Wrong Answer", to keep tag values bounded
+    static String verdictTag(String verdict) {
+        int on = verdict.indexOf(" on ");
+        return on < 0 ? verdict : verdict.substring(0, on);
+    }
+}
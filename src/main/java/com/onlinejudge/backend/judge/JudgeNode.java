@@ -0,0 +1,32 @@
+package com.onlinejudge.backend.judge;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Names this judging node among the others sharing its host, the same after
+ * a restart: the configured node id, or else the host name and server port,
+ * which no two nodes on a host can share. What the node leaves on the host is
+ * tagged with it, so at startup it cleans up after an earlier run of its own
+ * and never after a node still running next to it.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class JudgeNode {
+
+    private final String name;
+
+    public JudgeNode(@Value("${spring.app.judge.nodeId:}") String nodeId,
+                     @Value("${server.port:8080}") int port) throws UnknownHostException {
+        String name = nodeId.isBlank() ? InetAddress.getLocalHost().getHostName() + "-" + port : nodeId;
+        // Used as a docker label value and a directory name
+        this.name = name.replaceAll("[^A-Za-z0-9_.-]", "_");
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,87 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.model.CustomRun;
+import com.onlinejudge.backend.model.JudgeJob;
+import com.onlinejudge.backend.model.JudgeLane;
+import com.onlinejudge.backend.model.Role;
+import com.onlinejudge.backend.model.Submission;
+import com.onlinejudge.backend.model.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Entry point for judging a submission. Submitting only inserts a row into
+ * the {@code judge_jobs} table; the {@link JudgeWorker} of any judging node
+ * picks it up from there, so API nodes and judging nodes can be deployed
+ * separately. A job's weight in its lane comes from its user's role.
+ */
+@Component
+public class JudgeQueue {
+
+    private final JudgeJobStore jobStore;
+    // Present when this node judges too
+    private final ObjectProvider<JudgeWorker> localWorker;
+    private final Map<String, Integer> weights;
+
+    public JudgeQueue(JudgeJobStore jobStore,
+                      ObjectProvider<JudgeWorker> localWorker,
+                      MeterRegistry meterRegistry,
+                      @Value("#{${spring.app.judge.fairness.weights}}") Map<String, Integer> weights) {
+        this.jobStore = jobStore;
+        this.localWorker = localWorker;
+        this.weights = weights;
+        for (JudgeLane lane : JudgeLane.values()) {
+            Gauge.builder("judge.queue.depth", jobStore, store -> store.countQueued(lane))
+                    .description("Jobs waiting for a judge worker, over all nodes")
+                    .tag("lane", lane.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Queues the submission for judging in the live lane.
+     *
+     * @throws com.onlinejudge.backend.exception.JudgeQueueFullException if too many jobs are waiting
+     */
+    public void submit(Submission submission) {
+        submit(JudgeLane.LIVE, submission);
+    }
+
+    public void submit(JudgeLane lane, Submission submission) {
+        User user = submission.getUser();
+        jobStore.enqueue(JudgeJob.builder()
+                .lane(lane)
+                .language(submission.getLanguage())
+                .submissionId(submission.getId())
+                .userId(user.getId())
+                .weight(weightOf(user))
+                .build());
+        localWorker.ifAvailable(JudgeWorker::wakeUp);
+    }
+
+    /**
+     * Queues a custom run in the run lane.
+     *
+     * @throws com.onlinejudge.backend.exception.JudgeQueueFullException if too many runs are waiting
+     */
+    public void submitRun(CustomRun run, User user) {
+        jobStore.enqueue(JudgeJob.builder()
+                .lane(JudgeLane.RUN)
+                .language(run.getLanguage())
+                .runId(run.getId())
+                .userId(user.getId())
+                .weight(weightOf(user))
+                .build());
+        localWorker.ifAvailable(JudgeWorker::wakeUp);
+    }
+
+    private int weightOf(User user) {
+        Role role = user.getRole() != null ? user.getRole() : Role.USER;
+        return weights.getOrDefault(role.name(), 1);
+    }
+}
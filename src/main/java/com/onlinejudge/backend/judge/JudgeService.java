@@ -0,0 +1,316 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.checker.OutputChecker;
+import com.onlinejudge.backend.judge.sandbox.Sandbox;
+import com.onlinejudge.backend.judge.sandbox.SandboxSlot;
+import com.onlinejudge.backend.judge.sandbox.SandboxUnavailableException;
+import com.onlinejudge.backend.model.CustomRun;
+import com.onlinejudge.backend.model.Problem;
+import com.onlinejudge.backend.model.Submission;
+import com.onlinejudge.backend.model.TestCase;
+import com.onlinejudge.backend.model.TestData;
+import com.onlinejudge.backend.model.TestResult;
+import com.onlinejudge.backend.service.ProblemService;
+import com.onlinejudge.backend.service.SubmissionService;
+import com.onlinejudge.backend.service.TestDataService;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Service
+@ConditionalOnJudgeWorker
+public class JudgeService {
+    private static final Logger logger = LoggerFactory.getLogger(JudgeService.class);
+
+    private final SubmissionService submissionService;
+    private final ProblemService problemService;
+    private final Sandbox sandbox;
+    private final BatchRunner batchRunner;
+    private final ParallelTestExecutor parallelTestExecutor;
+    private final TestDataCache testDataCache;
+    private final CompileCache compileCache;
+    private final TestDataService testDataService;
+    private final JudgeMetrics metrics;
+    private final CustomRunner customRunner;
+    private final WorkspaceManager workspaceManager;
+    private final LanguageRegistry languages;
+    private final JavaCompilerService javaCompiler;
+    private final int defaultParallelism;
+    private final int maxParallelism;
+
+    public JudgeService(SubmissionService submissionService,
+                        ProblemService problemService,
+                        Sandbox sandbox,
+                        BatchRunner batchRunner,
+                        ParallelTestExecutor parallelTestExecutor,
+                        TestDataCache testDataCache,
+                        CompileCache compileCache,
+                        TestDataService testDataService,
+                        JudgeMetrics metrics,
+                        CustomRunner customRunner,
+                        WorkspaceManager workspaceManager,
+                        LanguageRegistry languages,
+                        JavaCompilerService javaCompiler,
+                        @Value("${spring.app.judge.parallelism.default}") int defaultParallelism,
+                        @Value("${spring.app.judge.parallelism.max}") int maxParallelism) {
+        this.submissionService = submissionService;
+        this.problemService = problemService;
+        this.sandbox = sandbox;
+        this.batchRunner = batchRunner;
+        this.parallelTestExecutor = parallelTestExecutor;
+        this.testDataCache = testDataCache;
+        this.compileCache = compileCache;
+        this.testDataService = testDataService;
+        this.metrics = metrics;
+        this.customRunner = customRunner;
+        this.workspaceManager = workspaceManager;
+        this.languages = languages;
+        this.javaCompiler = javaCompiler;
+        this.defaultParallelism = defaultParallelism;
+        this.maxParallelism = maxParallelism;
+    }
+
+    /**
+     * Runs the sample and then the system tests of the submission's problem and
+     * stores the resulting verdict. Called from a judge worker thread.
+     *
+     * @throws SandboxUnavailableException if no sandbox could be leased; nothing is stored
+     */
+    public void judge(Submission submission) {
+        Timer.Sample judging = metrics.start();
+        Judgement judgement = evaluate(submission);
+        if (judgement == null) {
+            return;
+        }
+        Timer.Sample write = metrics.start();
+        submissionService.updateVerdict(submission, judgement.getVerdict(), judgement.getTestResults());
+        metrics.verdictWrite(write, submission.getLanguage(), judgement.getVerdict());
+        metrics.submission(judging, submission.getLanguage(), judgement.getVerdict());
+    }
+
+    /**
+     * Judges the submission without storing anything.
+     *
+     * @return the verdict, or {@code null} if judging was interrupted by a shutdown
+     * @throws SandboxUnavailableException if no sandbox could be leased
+     */
+    public Judgement evaluate(Submission submission) {
+        String verdict;
+        List<TestResult> results = Collections.synchronizedList(new ArrayList<>());
+        try {
+            Problem problem = problemService.getProblemForJudging(submission.getProblem().getId());
+            verdict = runTests(submission, problem, results);
+        } catch (InterruptedException e) {
+            // Shutting down; the submission stays pending and its job is judged again
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (SandboxUnavailableException e) {
+            // Not the submission's fault; its job is queued again
+            throw e;
+        } catch (Exception e) {
+            logger.error("Judging failed for submission {}", submission.getId(), e);
+            verdict = Judgement.FAILED;
+        }
+        List<TestResult> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingInt(TestResult::getTest));
+        return new Judgement(verdict, sorted);
+    }
+
+    /**
+     * Compiles the run's code, reusing the compile cache, and runs it once on
+     * the run's input under its problem's limits. Fills in the run's result
+     * fields without storing them.
+     *
+     * @return {@code false} if the run was interrupted by a shutdown
+     * @throws SandboxUnavailableException if no sandbox could be leased
+     */
+    public boolean runCustom(CustomRun run) {
+        try {
+            Problem problem = problemService.getProblemForJudging(run.getProblemId());
+            String language = run.getLanguage();
+            String filename = languages.get(language).getFilename();
+            try (WorkspaceManager.Workspace workspace = workspaceManager.create(WorkspaceManager.RUN)) {
+                Files.writeString(workspace.getDir().resolve(filename), run.getCode());
+                Path testsDir = Files.createDirectories(workspace.getDir().resolve("tests"));
+                Files.writeString(testsDir.resolve("1.in"), run.getInput());
+
+                Timer.Sample leasing = metrics.start();
+                SandboxSlot slot = sandbox.lease(language);
+                metrics.lease(leasing, language);
+                try {
+                    String compileResult = compile(slot, workspace.getName(), language, filename, run.getCode());
+                    if (!"Compiled".equals(compileResult)) {
+                        run.setVerdict(compileResult);
+                        run.setStderr(compileLog(workspace.getDir()));
+                        return true;
+                    }
+                    Limits limits = Limits.forProblem(problem, languages.get(language));
+                    sandbox.applyLimits(slot, limits.getMemoryMb());
+                    CustomRunner.Output output = customRunner.run(slot, workspace.getName(), language, filename, limits);
+                    run.setVerdict(output.getVerdict());
+                    run.setStdout(output.getStdout());
+                    run.setStderr(output.getStderr());
+                    run.setTimeMs(output.getTimeMs());
+                    run.setMemoryKb(output.getMemoryKb());
+                    run.setExitCode(output.getExitCode());
+                } finally {
+                    sandbox.release(slot);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (SandboxUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Custom run {} failed", run.getId(), e);
+            run.setVerdict(Judgement.FAILED);
+        }
+        return true;
+    }
+
+    // Restored along with the verdict on a compile cache hit
+    private String compileLog(Path workspace) {
+        Path log = workspace.resolve(CompileCache.COMPILE_LOG);
+        try {
+            return Files.exists(log) ? Files.readString(log) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String runTests(Submission submission, Problem problem, List<TestResult> results)
+            throws IOException, InterruptedException {
+        String language = submission.getLanguage();
+        String filename = languages.get(language).getFilename();
+        // Deleted however judging ends; the slot is released first so nothing still runs in it
+        try (WorkspaceManager.Workspace workspace = workspaceManager.create(WorkspaceManager.SUBMISSION)) {
+            Files.writeString(workspace.getDir().resolve(filename), submission.getCode());
+
+            Timer.Sample leasing = metrics.start();
+            SandboxSlot slot = sandbox.lease(language);
+            metrics.lease(leasing, language);
+            try {
+                return runTests(slot, workspace.getName(), filename, language, submission.getCode(), problem, results);
+            } finally {
+                sandbox.release(slot);
+            }
+        }
+    }
+
+    private String runTests(SandboxSlot slot, String workspace, String filename, String language,
+                            String source, Problem problem, List<TestResult> results)
+            throws IOException, InterruptedException {
+        // 0. Compile once (or reuse an earlier compile of the same source);
+        // every test below runs against the same artifact
+        String compileResult = compile(slot, workspace, language, filename, source);
+        if (!"Compiled".equals(compileResult)) {
+            return compileResult;
+        }
+
+        List<TestCase> samples = problem.getSampleTestcases();
+        List<TestData> systems = testDataService.getTests(problem.getId());
+        try (TestDataCache.Links tests = testDataCache.links()) {
+            stageTests(sandbox.getWorkDir().resolve(workspace), samples, systems, tests);
+            return judgeTests(slot, workspace, filename, language, problem, samples.size(), systems.size(), results);
+        }
+    }
+
+    private String judgeTests(SandboxSlot slot, String workspace, String filename, String language, Problem problem,
+                              int sampleCount, int systemCount, List<TestResult> results)
+            throws IOException, InterruptedException {
+        Consumer<TestVerdict> listener = v -> {
+            logger.debug("Test #{}: {} ({} ms cpu, {} ms wall, {} KB)",
+                    v.getTest(), v.getVerdict(), v.getCpuTimeMs(), v.getWallTimeMs(), v.getMemoryKb());
+            results.add(new TestResult(v.getTest(), v.getVerdict(),
+                    v.getCpuTimeMs(), v.getWallTimeMs(), v.getMemoryKb(), v.getExitCode(), v.getSignal()));
+        };
+        OutputChecker checker = OutputChecker.forProblem(problem);
+        Limits limits = Limits.forProblem(problem, languages.get(language));
+        sandbox.applyLimits(slot, limits.getMemoryMb());
+
+        // 1. Run sample test cases in a single session
+        TestVerdict failure = batchRunner.run(slot, workspace, language, filename,
+                1, sampleCount, limits, checker, listener);
+        if (failure != null) {
+            return failure.getVerdict() + " on sample test #" + failure.getTest();
+        }
+
+        // 2. Run system test cases only if samples passed, fanned out over several sandboxes
+        int offset = sampleCount;
+        failure = parallelTestExecutor.run(slot, workspace, language, filename,
+                offset + 1, offset + systemCount, parallelismFor(problem), limits, checker, listener);
+        if (failure != null) {
+            return failure.getVerdict() + " on system test #" + (failure.getTest() - offset);
+        }
+        return "Accepted";
+    }
+
+    private int parallelismFor(Problem problem) {
+        int requested = problem.getParallelism() != null ? problem.getParallelism() : defaultParallelism;
+        return Math.max(1, Math.min(requested, maxParallelism));
+    }
+
+    // Tests are numbered in judging order: samples first, then system tests, each linked into the test cache
+    private void stageTests(Path folder, List<TestCase> samples, List<TestData> systems, TestDataCache.Links tests)
+            throws IOException {
+        Path testsDir = Files.createDirectories(folder.resolve("tests"));
+        int n = 0;
+        for (TestCase test : samples) {
+            n++;
+            tests.link(test.getInput(), testsDir.resolve(n + ".in"));
+            tests.link(test.getOutput(), testsDir.resolve(n + ".out"));
+        }
+        // System tests are streamed from the blob store, and only on a cache miss
+        for (TestData test : systems) {
+            n++;
+            tests.link(test.getInputHash(), () -> testDataService.open(test.getInputHash()),
+                    testsDir.resolve(n + ".in"));
+            tests.link(test.getOutputHash(), () -> testDataService.open(test.getOutputHash()),
+                    testsDir.resolve(n + ".out"));
+        }
+    }
+
+    private String compile(SandboxSlot slot, String workspace, String language, String filename,
+                           String source) throws IOException, InterruptedException {
+        Timer.Sample compiling = metrics.start();
+        Path folder = sandbox.getWorkDir().resolve(workspace);
+        Language spec = languages.get(language);
+        String key = compileCache.keyFor(spec, source);
+        String cached = compileCache.restore(key, language, folder);
+        if (cached != null) {
+            metrics.compile(compiling, language, cached, true);
+            return cached;
+        }
+
+        Set<String> before;
+        try (Stream<Path> files = Files.list(folder)) {
+            before = files.map(f -> f.getFileName().toString()).collect(Collectors.toSet());
+        }
+        // Compiles in the judge's compiler JVMs skip the sandbox; if one cannot be done now the sandbox compiles instead
+        if (!spec.isInProcess() || !javaCompiler.compile(folder, filename)) {
+            sandbox.exec(slot, workspace, "bash", "judge.sh", "compile", spec.isCompiled() ? spec.getCompile() : "true");
+        }
+
+        String verdict = Files.readString(folder.resolve(CompileCache.VERDICT_FILE)).trim();
+        if ("Compiled".equals(verdict) || "Compilation Error".equals(verdict)) {
+            compileCache.store(key, folder, before, verdict);
+        }
+        metrics.compile(compiling, language, verdict, false);
+        return verdict;
+    }
+}
@@ -0,0 +1,332 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.exception.ResourceNotFoundException;
+import com.onlinejudge.backend.judge.sandbox.CoreAllocator;
+import com.onlinejudge.backend.judge.sandbox.SandboxUnavailableException;
+import com.onlinejudge.backend.model.CustomRun;
+import com.onlinejudge.backend.model.JudgeJob;
+import com.onlinejudge.backend.model.JudgeLane;
+import com.onlinejudge.backend.model.Submission;
+import com.onlinejudge.backend.service.CustomRunService;
+import com.onlinejudge.backend.service.RejudgeService;
+import com.onlinejudge.backend.service.SubmissionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Takes jobs from the durable {@code judge_jobs} table on a judging node. A
+ * dispatcher claims jobs in batches with {@code FOR UPDATE SKIP LOCKED},
+ * judges each on its own virtual thread and keeps their leases alive with
+ * heartbeats. Jobs of a node that dies are queued again once their lease
+ * expires, so several nodes can share one database and a restart loses no
+ * work. How many submissions a node judges at once is set by a semaphore on
+ * its sandbox slots: the number of cores in the judge cpuset when sandboxes
+ * are pinned, else {@code spring.app.judge.workers}. Lanes are served in
+ * priority order, each up to its share of the slots ({@code lanes.maxWorkers}),
+ * so rejudges only get what runs and live submissions leave over. Only jobs
+ * of languages with a sandbox left ({@link LanguageSlots}) are claimed; a job
+ * that still finds no sandbox in time is queued again, not failed.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class JudgeWorker {
+    private static final Logger logger = LoggerFactory.getLogger(JudgeWorker.class);
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    private final JudgeService judgeService;
+    private final SubmissionService submissionService;
+    private final RejudgeService rejudgeService;
+    private final CustomRunService customRunService;
+    private final JudgeJobStore jobStore;
+    private final JudgeMetrics metrics;
+    private final LanguageSlots languageSlots;
+    private final ExecutorService executor;
+    private final String owner;
+    private final int workers;
+    private final Map<JudgeLane, Integer> laneLimits = new EnumMap<>(JudgeLane.class);
+    private final int batchSize;
+    private final Duration lease;
+    private final long pollMs;
+    // Submissions being judged on this node, each holding a sandbox slot
+    private final Semaphore slots;
+    // Signalled when a job is submitted on this node or a slot frees up
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final Map<Long, JudgeJob> running = new ConcurrentHashMap<>();
+    // Jobs being judged on this node per lane
+    private final Map<JudgeLane, AtomicInteger> active = new EnumMap<>(JudgeLane.class);
+    private final Map<JudgeLane, Counter> claims = new EnumMap<>(JudgeLane.class);
+    private volatile Thread dispatcher;
+    private volatile boolean stopping;
+
+    public JudgeWorker(JudgeService judgeService,
+                      SubmissionService submissionService,
+                      RejudgeService rejudgeService,
+                      CustomRunService customRunService,
+                      JudgeJobStore jobStore,
+                      JudgeMetrics metrics,
+                      LanguageSlots languageSlots,
+                      CoreAllocator cores,
+                      MeterRegistry meterRegistry,
+                      @Value("${spring.app.judge.workers}") int workers,
+                      @Value("#{${spring.app.judge.lanes.maxWorkers}}") Map<String, Integer> laneLimits,
+                      @Value("${spring.app.judge.nodeId:}") String nodeId,
+                      @Value("${spring.app.judge.jobs.batchSize}") int batchSize,
+                      @Value("${spring.app.judge.jobs.leaseMs}") long leaseMs,
+                      @Value("${spring.app.judge.jobs.pollMs}") long pollMs) {
+        this.judgeService = judgeService;
+        this.submissionService = submissionService;
+        this.rejudgeService = rejudgeService;
+        this.customRunService = customRunService;
+        this.jobStore = jobStore;
+        this.metrics = metrics;
+        this.languageSlots = languageSlots;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("judge-worker-", 1).factory());
+        // Unique per JVM so that leases of a restarted node are never mistaken for its own
+        this.owner = (nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId)
+                + "/" + UUID.randomUUID().toString().substring(0, 8);
+        // One submission per pinned core; extra slots for parallel tests only get cores left over
+        this.workers = cores.isEnabled() ? cores.size() : workers;
+        this.batchSize = batchSize;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.pollMs = pollMs;
+        this.slots = new Semaphore(this.workers);
+
+        Gauge.builder("judge.workers.active", slots, s -> this.workers - s.availablePermits())
+                .description("Judge workers currently judging a submission")
+                .register(meterRegistry);
+        for (JudgeLane lane : JudgeLane.values()) {
+            this.laneLimits.put(lane, laneLimits.getOrDefault(lane.name(), this.workers));
+            AtomicInteger count = new AtomicInteger();
+            this.active.put(lane, count);
+            Gauge.builder("judge.lane.active", count, AtomicInteger::get)
+                    .description("Jobs of the lane being judged on this node")
+                    .tag("lane", lane.name())
+                    .register(meterRegistry);
+            this.claims.put(lane, Counter.builder("judge.scheduler.claims")
+                    .description("Jobs this node claimed from the lane")
+                    .tag("lane", lane.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Makes the dispatcher look for jobs now instead of at its next poll.
+     */
+    public void wakeUp() {
+        wakeUp.release();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int recovered = jobStore.recoverPending();
+        if (recovered > 0) {
+            logger.info("Queued {} pending submissions that had no judge job", recovered);
+        }
+        dispatcher = Thread.ofVirtual().name("judge-dispatcher").start(this::dispatch);
+        logger.info("Judge node {} taking jobs with {} workers", owner, workers);
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                int free = Math.min(slots.availablePermits(), batchSize);
+                List<String> open = languageSlots.open();
+                List<JudgeJob> jobs = new ArrayList<>();
+                // Strict priority between lanes, each capped at its share of the slots
+                for (JudgeLane lane : JudgeLane.values()) {
+                    int room = Math.min(free - jobs.size(), laneLimits.get(lane) - active.get(lane).get());
+                    if (room > 0 && !open.isEmpty()) {
+                        List<JudgeJob> claimed = jobStore.claim(owner, lane, open, room, lease);
+                        claims.get(lane).increment(claimed.size());
+                        jobs.addAll(claimed);
+                    }
+                }
+                for (JudgeJob job : jobs) {
+                    // A batch may hold more jobs of a language than it has sandboxes left
+                    if (!languageSlots.tryAcquire(job.getLanguage())) {
+                        handBack(job);
+                        continue;
+                    }
+                    slots.acquire();
+                    active.get(job.getLane()).incrementAndGet();
+                    running.put(job.getId(), job);
+                    executor.execute(() -> judge(job));
+                }
+                if (jobs.isEmpty() || slots.availablePermits() == 0) {
+                    wakeUp.tryAcquire(pollMs, TimeUnit.MILLISECONDS);
+                    wakeUp.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Failed to claim judge jobs", e);
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void judge(JudgeJob job) {
+        boolean handedBack = false;
+        try {
+            if (job.getRunId() != null) {
+                runCustom(job);
+                return;
+            }
+            Submission submission = submissionService.getSubmissionById(job.getSubmissionId());
+            metrics.queueWait(job.getLane(), submission.getLanguage(),
+                    Duration.between(job.getCreatedAt(), Instant.now()));
+            if (job.getRejudgeId() == null) {
+                judgeService.judge(submission);
+            } else {
+                Judgement judgement = judgeService.evaluate(submission);
+                if (judgement != null) {
+                    rejudgeService.record(job.getRejudgeId(), submission.getId(),
+                            judgement.getVerdict(), judgement.getTestResults());
+                }
+            }
+        } catch (ResourceNotFoundException e) {
+            logger.info("Submission {} was deleted before it was judged", job.getSubmissionId());
+            recordFailedRejudge(job);
+        } catch (SandboxUnavailableException e) {
+            // Nothing was judged or stored; this node or another takes the job again
+            logger.warn("Judge job {} queued again: {}", job.getId(), e.getMessage());
+            handBack(job);
+            handedBack = true;
+        } catch (RuntimeException e) {
+            logger.error("Judge job {} failed", job.getId(), e);
+        } finally {
+            // Jobs cut short by a shutdown stay leased and are handed back below
+            if (!stopping && !handedBack) {
+                try {
+                    jobStore.complete(job, owner);
+                } catch (RuntimeException e) {
+                    // The lease runs out and another node judges the submission again
+                    logger.error("Could not complete judge job {}", job.getId(), e);
+                }
+            }
+            running.remove(job.getId());
+            active.get(job.getLane()).decrementAndGet();
+            languageSlots.release(job.getLanguage());
+            slots.release();
+            wakeUp.release();
+        }
+    }
+
+    private void handBack(JudgeJob job) {
+        try {
+            jobStore.requeue(job, owner);
+        } catch (RuntimeException e) {
+            // Queued again once the lease runs out
+            logger.error("Could not hand judge job {} back", job.getId(), e);
+        }
+    }
+
+    private void runCustom(JudgeJob job) {
+        CustomRun run;
+        try {
+            run = customRunService.getRun(job.getRunId());
+        } catch (ResourceNotFoundException e) {
+            logger.info("Custom run {} expired before it ran", job.getRunId());
+            return;
+        }
+        metrics.queueWait(job.getLane(), run.getLanguage(), Duration.between(job.getCreatedAt(), Instant.now()));
+        if (judgeService.runCustom(run)) {
+            customRunService.complete(run);
+        }
+    }
+
+    // A rejudge keeps the old verdict of a submission that could not be judged
+    private void recordFailedRejudge(JudgeJob job) {
+        if (job.getRejudgeId() != null) {
+            rejudgeService.record(job.getRejudgeId(), job.getSubmissionId(), Judgement.FAILED, List.of());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.judge.jobs.heartbeatMs}")
+    public void heartbeat() {
+        try {
+            jobStore.heartbeat(owner, running.keySet(), lease);
+        } catch (RuntimeException e) {
+            logger.warn("Judge job heartbeat failed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.judge.jobs.heartbeatMs}")
+    public void reapExpired() {
+        try {
+            for (JudgeJob job : jobStore.reapExpired()) {
+                if (job.getRunId() != null) {
+                    logger.warn("Giving up on custom run {} after repeated lost judge leases", job.getRunId());
+                    failRun(job.getRunId());
+                    continue;
+                }
+                logger.warn("Giving up on submission {} after repeated lost judge leases", job.getSubmissionId());
+                if (job.getRejudgeId() != null) {
+                    recordFailedRejudge(job);
+                } else {
+                    submissionService.updateVerdict(submissionService.getSubmissionById(job.getSubmissionId()),
+                            Judgement.FAILED);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Reaping expired judge jobs failed", e);
+        }
+    }
+
+    private void failRun(Long runId) {
+        try {
+            CustomRun run = customRunService.getRun(runId);
+            run.setVerdict(Judgement.FAILED);
+            customRunService.complete(run);
+        } catch (ResourceNotFoundException e) {
+            // Already purged
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stopping = true;
+        Thread thread = dispatcher;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        executor.shutdownNow();
+        executor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        try {
+            int released = jobStore.release(owner);
+            if (released > 0) {
+                logger.info("Handed {} unfinished judge jobs back to the queue", released);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not hand judge jobs back; they are retried when their leases expire", e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.model.TestResult;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Overall verdict of a submission with the results of the tests that ran,
+ * in judging order.
+ */
+@Getter
+@AllArgsConstructor
+public class Judgement {
+    public static final String FAILED = "Judging Failed";
+
+    private final String verdict;
+    private final List<TestResult> testResults;
+
+    public static Judgement failed() {
+        return new Judgement(FAILED, List.of());
+    }
+}
@@ -0,0 +1,40 @@
+package com.onlinejudge.backend.judge;
+
+import lombok.Data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * How the judge builds and runs one language, as configured under
+ * {@code spring.app.judge.languages.<id>}. Commands run in the workspace
+ * through bash inside the language's sandbox image; {@code compile} is
+ * empty for interpreted languages.
+ */
+@Data
+public class Language {
+
+    private String id;
+    // Name the source is saved under, which the commands refer to
+    private String filename;
+    private String image;
+    private String compile = "";
+    private String run;
+    // Applied to the problem's limits, for runtimes that are slower or need more memory
+    private double timeMultiplier = 1.0;
+    private double memoryMultiplier = 1.0;
+    // Java only: compile with javax.tools in the judge's compiler JVMs, falling back to the compile command
+    private boolean inProcess;
+
+    public boolean isCompiled() {
+        return compile != null && !compile.isBlank();
+    }
+
+    /**
+     * The run command split into arguments, for sandboxes that start the
+     * program directly instead of through bash.
+     */
+    public List<String> runArgs() {
+        return Arrays.asList(run.trim().split("\\s+"));
+    }
+}
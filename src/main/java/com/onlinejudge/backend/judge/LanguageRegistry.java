@@ -0,0 +1,65 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.exception.APIException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Languages the judge accepts, bound from {@code spring.app.judge.languages}.
+ * Adding a language takes an entry there and a sandbox image with its
+ * toolchain; nothing in the controllers or judge.sh is language specific.
+ */
+@Component
+@ConfigurationProperties(prefix = "spring.app.judge")
+public class LanguageRegistry {
+
+    private Map<String, Language> languages = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void validate() {
+        if (languages.isEmpty()) {
+            throw new IllegalStateException("No languages configured under spring.app.judge.languages");
+        }
+        languages.forEach((id, language) -> {
+            language.setId(id);
+            if (isBlank(language.getFilename()) || isBlank(language.getImage()) || isBlank(language.getRun())) {
+                throw new IllegalStateException("Language " + id + " needs a filename, an image and a run command");
+            }
+            if (language.getTimeMultiplier() <= 0 || language.getMemoryMultiplier() <= 0) {
+                throw new IllegalStateException("Language " + id + " has a limit multiplier that is not positive");
+            }
+        });
+    }
+
+    /**
+     * @throws APIException if the language is not configured
+     */
+    public Language get(String id) {
+        Language language = id != null ? languages.get(id) : null;
+        if (language == null) {
+            throw new APIException("Unsupported language: " + id);
+        }
+        return language;
+    }
+
+    public Collection<Language> getAll() {
+        return languages.values();
+    }
+
+    public Map<String, Language> getLanguages() {
+        return languages;
+    }
+
+    public void setLanguages(Map<String, Language> languages) {
+        this.languages = languages;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,55 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.sandbox.Sandbox;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sandboxes of each language this node can lease at once, as permits. The
+ * judge worker only claims jobs of languages with a permit left and holds one
+ * per job it judges; parallel tests take one for each extra sandbox. So a
+ * claimed submission finds a sandbox of its language without waiting on
+ * other submissions, however many of one language are queued.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class LanguageSlots {
+
+    private final Map<String, Semaphore> permits = new LinkedHashMap<>();
+
+    public LanguageSlots(Sandbox sandbox, LanguageRegistry languages) {
+        for (Language language : languages.getAll()) {
+            permits.put(language.getId(), new Semaphore(sandbox.capacity(language.getId())));
+        }
+    }
+
+    /**
+     * @return the languages with a sandbox left
+     */
+    public List<String> open() {
+        return permits.entrySet().stream()
+                .filter(entry -> entry.getValue().availablePermits() > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Takes a permit for the language if one is left. A language that is not
+     * configured, or not known, always gets one; leasing its sandbox fails.
+     */
+    public boolean tryAcquire(String language) {
+        Semaphore semaphore = language != null ? permits.get(language) : null;
+        return semaphore == null || semaphore.tryAcquire();
+    }
+
+    public void release(String language) {
+        Semaphore semaphore = language != null ? permits.get(language) : null;
+        if (semaphore != null) {
+            semaphore.release();
+        }
+    }
+}
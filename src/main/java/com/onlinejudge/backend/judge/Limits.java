@@ -0,0 +1,51 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.model.Problem;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Resource limits for running a submission on one test, taken from the
+ * problem's {@code time} (seconds), {@code memory} (MB) and
+ * {@code outputLimit} (MB). Time and memory are scaled by the language's
+ * multipliers.
+ */
+@Getter
+@AllArgsConstructor
+public class Limits {
+    public static final long DEFAULT_CPU_TIME_MS = 2000;
+    public static final int DEFAULT_MEMORY_MB = 256;
+    public static final int DEFAULT_OUTPUT_MB = 64;
+
+    private final long cpuTimeMs;
+    private final int memoryMb;
+    // Bytes a test may write to standard output, and to any single file
+    private final long outputBytes;
+
+    public static Limits forProblem(Problem problem, Language language) {
+        long cpuTimeMs = problem.getTime() > 0 ? Math.round(problem.getTime() * 1000) : DEFAULT_CPU_TIME_MS;
+        int memoryMb = problem.getMemory() > 0 ? problem.getMemory() : DEFAULT_MEMORY_MB;
+        cpuTimeMs = Math.round(cpuTimeMs * language.getTimeMultiplier());
+        memoryMb = (int) Math.round(memoryMb * language.getMemoryMultiplier());
+        int outputMb = problem.getOutputLimit() != null && problem.getOutputLimit() > 0
+                ? problem.getOutputLimit() : DEFAULT_OUTPUT_MB;
+        return new Limits(cpuTimeMs, memoryMb, outputMb * 1024L * 1024L);
+    }
+
+    /**
+     * Wall-clock guard for programs that block or sleep instead of using CPU.
+     * Deliberately generous so that contention on a busy host cannot cause a
+     * time limit verdict; the real limit is checked against consumed CPU time.
+     */
+    public long getWallTimeMs() {
+        return cpuTimeMs * 3 + 1000;
+    }
+
+    /**
+     * RLIMIT_CPU only has whole-second granularity, so it is set just above the
+     * limit as a hard stop and the exact limit is checked afterwards.
+     */
+    public long getCpuLimitSeconds() {
+        return cpuTimeMs / 1000 + 1;
+    }
+}
@@ -0,0 +1,206 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.checker.OutputChecker;
+import com.onlinejudge.backend.judge.sandbox.Sandbox;
+import com.onlinejudge.backend.judge.sandbox.SandboxSlot;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Fans the tests of one submission out over several sandboxes. Tests are
+ * handed out in index order; as soon as one fails, runs of higher-indexed
+ * tests are cancelled while lower-indexed ones still finish, so the reported
+ * failure is always the lowest-indexed failing test. Each extra sandbox
+ * takes a permit of its language from {@link LanguageSlots}, so extras never
+ * hold a sandbox a claimed submission is waiting for.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class ParallelTestExecutor {
+
+    private final Sandbox sandbox;
+    private final LanguageSlots languageSlots;
+    private final BatchRunner batchRunner;
+    private final TestRunner testRunner;
+    private final ExecutorService executor;
+
+    public ParallelTestExecutor(Sandbox sandbox, LanguageSlots languageSlots, BatchRunner batchRunner,
+                                TestRunner testRunner) {
+        this.sandbox = sandbox;
+        this.languageSlots = languageSlots;
+        this.batchRunner = batchRunner;
+        this.testRunner = testRunner;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("judge-test-", 1).factory());
+    }
+
+    /**
+     * Runs tests {@code first..last} on the primary slot plus up to
+     * {@code parallelism - 1} extra slots that are idle right now.
+     *
+     * @return the lowest-indexed failing verdict, or {@code null} if every test passed
+     */
+    public TestVerdict run(SandboxSlot primary, String workspace, String language, String filename,
+                           int first, int last, int parallelism, Limits limits, OutputChecker checker,
+                           Consumer<TestVerdict> listener) throws IOException, InterruptedException {
+        List<SandboxSlot> slots = new ArrayList<>();
+        slots.add(primary);
+        int wanted = Math.min(parallelism, last - first + 1);
+        while (slots.size() < wanted && languageSlots.tryAcquire(language)) {
+            SandboxSlot extra = sandbox.tryLease(language);
+            if (extra == null) {
+                languageSlots.release(language);
+                break;
+            }
+            slots.add(extra);
+        }
+
+        try {
+            for (SandboxSlot slot : slots.subList(1, slots.size())) {
+                sandbox.applyLimits(slot, limits.getMemoryMb());
+            }
+            if (slots.size() == 1) {
+                return batchRunner.run(primary, workspace, language, filename, first, last, limits, checker, listener);
+            }
+            return fanOut(slots, workspace, language, filename, first, last, limits, checker, listener);
+        } finally {
+            // Cancelled runs were stopped inside their slots; releasing resets the slots as well
+            for (SandboxSlot slot : slots.subList(1, slots.size())) {
+                sandbox.release(slot);
+                languageSlots.release(language);
+            }
+        }
+    }
+
+    private TestVerdict fanOut(List<SandboxSlot> slots, String workspace, String language, String filename,
+                               int first, int last, Limits limits, OutputChecker checker,
+                               Consumer<TestVerdict> listener) throws IOException, InterruptedException {
+        Run run = new Run(workspace, language, filename, first, last, limits, checker, listener);
+        List<Future<?>> futures = new ArrayList<>();
+        for (SandboxSlot slot : slots) {
+            futures.add(executor.submit(() -> {
+                run.work(slot);
+                return null;
+            }));
+        }
+
+        IOException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (failure == null) {
+                    failure = cause instanceof IOException io ? io : new IOException(cause);
+                }
+                run.cancelAbove(first - 1);
+            } catch (InterruptedException e) {
+                run.cancelAbove(first - 1);
+                futures.forEach(f -> f.cancel(true));
+                throw e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return run.failures.isEmpty() ? null : run.failures.firstEntry().getValue();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Shared state of one fan-out: the next test to hand out, the lowest
+     * failing test seen so far and the processes currently running.
+     */
+    private class Run {
+        private final String workspace;
+        private final String language;
+        private final String filename;
+        private final int last;
+        private final Limits limits;
+        private final OutputChecker checker;
+        private final Consumer<TestVerdict> listener;
+        private final AtomicInteger next;
+        private final AtomicInteger lowestFailure = new AtomicInteger(Integer.MAX_VALUE);
+        private final Map<Integer, Running> running = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<Integer, TestVerdict> failures = new ConcurrentSkipListMap<>();
+
+        Run(String workspace, String language, String filename, int first, int last, Limits limits,
+            OutputChecker checker, Consumer<TestVerdict> listener) {
+            this.workspace = workspace;
+            this.language = language;
+            this.filename = filename;
+            this.last = last;
+            this.limits = limits;
+            this.checker = checker;
+            this.listener = listener;
+            this.next = new AtomicInteger(first);
+        }
+
+        void work(SandboxSlot slot) throws IOException, InterruptedException {
+            while (true) {
+                int test = next.getAndIncrement();
+                if (test > last || test > lowestFailure.get()) {
+                    return;
+                }
+
+                TestVerdict verdict;
+                try {
+                    verdict = testRunner.run(slot, workspace, language, filename, test, limits, checker, proc -> {
+                        running.put(test, new Running(slot, proc));
+                        if (test > lowestFailure.get()) {
+                            sandbox.stop(slot, proc);
+                        }
+                    });
+                } catch (IOException e) {
+                    if (test > lowestFailure.get()) {
+                        return;
+                    }
+                    throw e;
+                } finally {
+                    running.remove(test);
+                }
+
+                if (test > lowestFailure.get()) {
+                    // Cancelled because a lower-indexed test already failed
+                    return;
+                }
+
+                listener.accept(verdict);
+                if (!verdict.isAccepted()) {
+                    failures.put(test, verdict);
+                    lowestFailure.accumulateAndGet(test, Math::min);
+                    cancelAbove(test);
+                    return;
+                }
+            }
+        }
+
+        void cancelAbove(int test) {
+            lowestFailure.accumulateAndGet(test, Math::min);
+            running.forEach((index, run) -> {
+                if (index > test) {
+                    sandbox.stop(run.slot(), run.proc());
+                }
+            });
+        }
+    }
+
+    private record Running(SandboxSlot slot, Process proc) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.sandbox.CgroupMeter;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * What a finished program consumed, and the limit verdict that earns it. Used
+ * by both the {@link TestRunner} and the {@link CustomRunner}, so tests and
+ * custom runs are judged by the same rules: cgroup accounting where the
+ * cgroup has it and GNU time otherwise, then output, time, memory and exit
+ * status, in that order.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+class RunUsage {
+    private static final String SIGNAL_PREFIX = "Command terminated by signal";
+
+    private final long cpuTimeMs;
+    private final long memoryKb;
+    // As GNU time saw it, or as the judge measured it when GNU time did not report
+    private final long wallTimeMs;
+    // Terminating signal GNU time reported, 0 if none or unknown
+    private final int signal;
+    private final boolean oomKilled;
+
+    /**
+     * @param statFile where judge.sh left GNU time's report, or {@code null}
+     *                 when the judge stopped the program and there is none
+     */
+    static RunUsage of(CgroupMeter.Usage usage, Path statFile, long judgeWallMs) {
+        long[] stats = statFile != null ? readStats(statFile) : null;
+        long cpuTimeMs = usage.getCpuTimeMs() >= 0 ? usage.getCpuTimeMs() : stats != null ? stats[1] : -1;
+        long memoryKb = usage.getPeakMemoryKb() >= 0 ? usage.getPeakMemoryKb() : stats != null ? stats[2] : -1;
+        long wallTimeMs = stats != null ? stats[0] : judgeWallMs;
+        int signal = stats != null ? (int) stats[3] : 0;
+        return new RunUsage(cpuTimeMs, memoryKb, wallTimeMs, signal, usage.isOomKilled());
+    }
+
+    /**
+     * @return Output Limit Exceeded, Time Limit Exceeded, Memory Limit
+     * Exceeded or Runtime Error, or {@code null} if the program exited
+     * cleanly within its limits and its output decides
+     */
+    String limitVerdict(boolean outputExceeded, int status, Limits limits) {
+        if (outputExceeded) {
+            return "Output Limit Exceeded";
+        }
+        if (status == 124 || cpuTimeMs > limits.getCpuTimeMs()) {
+            return "Time Limit Exceeded";
+        }
+        if (oomKilled || (status != 0 && memoryKb >= limits.getMemoryMb() * 1024L)) {
+            return "Memory Limit Exceeded";
+        }
+        if (status != 0) {
+            return "Runtime Error";
+        }
+        return null;
+    }
+
+    /**
+     * Parses the last line GNU time wrote ("wall user sys maxrss"), preceded by
+     * a "Command terminated by signal" line when the program was killed.
+     *
+     * @return wall ms, cpu ms, peak RSS KB and terminating signal (0 if none),
+     * or {@code null} if unavailable
+     */
+    static long[] readStats(Path statPath) {
+        try {
+            List<String> lines = Files.readAllLines(statPath);
+            if (lines.isEmpty()) {
+                return null;
+            }
+            long signal = 0;
+            String first = lines.get(0).trim();
+            if (lines.size() > 1 && first.startsWith(SIGNAL_PREFIX)) {
+                signal = Long.parseLong(first.substring(SIGNAL_PREFIX.length()).trim());
+            }
+            String[] parts = lines.get(lines.size() - 1).trim().split("\\s+");
+            double wall = Double.parseDouble(parts[0]);
+            double cpu = Double.parseDouble(parts[1]) + Double.parseDouble(parts[2]);
+            return new long[]{Math.round(wall * 1000), Math.round(cpu * 1000), Long.parseLong(parts[3]), signal};
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.onlinejudge.backend.judge;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Local store of test files keyed by the SHA-256 of their content. A test is
+ * fetched from its source the first time any submission needs it, and only
+ * enters the cache if its content matches the hash. Workspaces get symbolic
+ * links into the cache instead of copies: the sandboxes mount the cache
+ * read-only at the same path, so a link resolves alike for the judge and the
+ * program, staging a test costs nothing however large it is, and no program
+ * can change what later submissions are judged against. Files linked from a
+ * workspace being judged are pinned; least recently used unpinned files are
+ * evicted once the cache exceeds its byte budget.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class TestDataCache {
+    private static final Logger logger = LoggerFactory.getLogger(TestDataCache.class);
+
+    private final Path dir;
+    private final long maxBytes;
+    private final Counter hits;
+    private final Counter misses;
+
+    // Hash -> file size, in access order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    // Hash -> workspaces linking to it, which keep it from being evicted
+    private final Map<String, Integer> pinned = new HashMap<>();
+    private long totalBytes;
+
+    public TestDataCache(MeterRegistry meterRegistry,
+                         @Value("${spring.app.judge.testCache.dir}") String dir,
+                         @Value("${spring.app.judge.testCache.maxBytes}") long maxBytes) throws IOException {
+        this.dir = Files.createDirectories(Paths.get(dir).toAbsolutePath());
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder("judge.testcache.requests").tag("result", "hit")
+                .description("Test files served from the local test data cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("judge.testcache.requests").tag("result", "miss")
+                .description("Test files written to the local test data cache")
+                .register(meterRegistry);
+        Gauge.builder("judge.testcache.bytes", this, TestDataCache::getTotalBytes)
+                .description("Bytes held by the local test data cache")
+                .register(meterRegistry);
+        load();
+    }
+
+    /**
+     * Opens the content of a file that is not in the cache yet.
+     */
+    @FunctionalInterface
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Links of one workspace into the cache. The files they point to stay in
+     * the cache until this is closed.
+     */
+    public Links links() {
+        return new Links();
+    }
+
+    /**
+     * Where the cache is, and where the sandboxes mount it read-only.
+     */
+    public Path getDir() {
+        return dir;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public class Links implements AutoCloseable {
+        private final List<String> hashes = new ArrayList<>();
+
+        private Links() {
+        }
+
+        /**
+         * Makes {@code target} a link to {@code content}, added to the cache if need be.
+         */
+        public void link(String content, Path target) throws IOException {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            link(sha256(bytes), () -> new ByteArrayInputStream(bytes), target);
+        }
+
+        /**
+         * Same as {@link #link(String, Path)} for content whose SHA-256 is
+         * already known; {@code source} is only opened on a cache miss.
+         */
+        public void link(String hash, Source source, Path target) throws IOException {
+            Path cached = fetch(hash, source);
+            hashes.add(hash);
+            Files.createSymbolicLink(target, cached);
+        }
+
+        @Override
+        public void close() {
+            unpin(hashes);
+            hashes.clear();
+        }
+    }
+
+    // Pins the file; it cannot be evicted until unpinned
+
+    private Path fetch(String hash, Source source) throws IOException {
+        Path path = pathFor(hash);
+        synchronized (this) {
+            if (entries.get(hash) != null && Files.exists(path)) {
+                hits.increment();
+                pinned.merge(hash, 1, Integer::sum);
+                return path;
+            }
+        }
+
+        misses.increment();
+        Files.createDirectories(path.getParent());
+        // Write aside and move into place so readers never see a partial file
+        Path temp = dir.resolve(hash + "." + UUID.randomUUID() + ".tmp");
+        MessageDigest digest = sha256();
+        long size;
+        try (InputStream in = new DigestInputStream(source.open(), digest)) {
+            size = Files.copy(in, temp);
+            // A blob store or peer that sent something else must not decide later verdicts
+            String actual = HexFormat.of().formatHex(digest.digest());
+            if (!actual.equals(hash)) {
+                throw new IOException("Test file " + hash + " arrived with SHA-256 " + actual);
+            }
+            temp.toFile().setReadOnly();
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        synchronized (this) {
+            if (entries.put(hash, size) == null) {
+                totalBytes += size;
+            }
+            pinned.merge(hash, 1, Integer::sum);
+            evict();
+        }
+        return path;
+    }
+
+    private synchronized void unpin(List<String> hashes) {
+        for (String hash : hashes) {
+            pinned.computeIfPresent(hash, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    // Called with the lock held; never evicts a file a workspace links to
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (pinned.containsKey(eldest.getKey())) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(pathFor(eldest.getKey()));
+            } catch (IOException e) {
+                logger.warn("Could not evict cached test file {}", eldest.getKey(), e);
+                continue;
+            }
+            totalBytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    // Rebuilds the index from disk, oldest modification first, so the cache survives restarts
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.filter(Files::isRegularFile).forEach(files::add);
+        }
+        files.sort((a, b) -> lastModified(a).compareTo(lastModified(b)));
+        synchronized (this) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                long size = Files.size(file);
+                entries.put(name, size);
+                totalBytes += size;
+            }
+            evict();
+        }
+        logger.info("Test data cache at {} holds {} files, {} bytes", dir, entries.size(), totalBytes);
+    }
+
+    // Two-level layout keeps directories small
+    private Path pathFor(String hash) {
+        return dir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        return HexFormat.of().formatHex(sha256().digest(bytes));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.checker.OutputChecker;
+import com.onlinejudge.backend.judge.sandbox.CgroupMeter;
+import com.onlinejudge.backend.judge.sandbox.Processes;
+import com.onlinejudge.backend.judge.sandbox.Sandbox;
+import com.onlinejudge.backend.judge.sandbox.SandboxSlot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs one staged test with a single exec in a leased sandbox, checks the
+ * program's output while it streams back and judges time and memory on what
+ * the program actually consumed. Output beyond the problem's limit stops the
+ * program with Output Limit Exceeded.
+ */
+@Component
+@ConditionalOnJudgeWorker
+@RequiredArgsConstructor
+public class TestRunner {
+
+    // After a mismatch, how long to wait for the program to exit on its own
+    // so that a crash is still reported as a runtime error
+    private static final long EXIT_GRACE_MS = 100;
+
+    private final Sandbox sandbox;
+    private final CgroupMeter cgroupMeter;
+    private final JudgeMetrics metrics;
+
+    /**
+     * @param onStart receives the running process, e.g. so the caller can cancel it
+     */
+    public TestVerdict run(SandboxSlot slot, String workspace, String language, String filename,
+                           int test, Limits limits, OutputChecker checker, Consumer<Process> onStart)
+            throws IOException, InterruptedException {
+        Path folder = sandbox.getWorkDir().resolve(workspace);
+        Path testsDir = folder.resolve("tests");
+        CgroupMeter.Measurement measurement = cgroupMeter.start(slot);
+        long startedAt = System.nanoTime();
+
+        Process proc = sandbox.run(slot, workspace, language, filename, test, limits);
+        AtomicLong exitedAt = new AtomicLong();
+        proc.onExit().thenRun(() -> exitedAt.set(System.nanoTime()));
+        onStart.accept(proc);
+
+        boolean matches = false;
+        boolean stopped = false;
+        boolean outputExceeded = false;
+        try (Reader expected = Files.newBufferedReader(testsDir.resolve(test + ".out"), StandardCharsets.UTF_8);
+             Reader actual = new BufferedReader(new InputStreamReader(
+                     new BoundedInputStream(proc.getInputStream(), limits.getOutputBytes()), StandardCharsets.UTF_8))) {
+            matches = checker.matches(expected, actual);
+            // Zero when the comparison was done before the program exited
+            long exited = exitedAt.get();
+            metrics.compare(language, exited != 0 ? System.nanoTime() - exited : 0);
+            if (!matches && !Processes.awaitExit(proc, EXIT_GRACE_MS, TimeUnit.MILLISECONDS)) {
+                // Wrong output is final, no need to let the program run on
+                sandbox.stop(slot, proc);
+                stopped = true;
+            }
+        } catch (BoundedInputStream.LimitExceededException e) {
+            sandbox.stop(slot, proc);
+            stopped = true;
+            outputExceeded = true;
+        } catch (IOException e) {
+            sandbox.stop(slot, proc);
+            measurement.finish();
+            throw e;
+        }
+
+        int status = Processes.awaitExit(proc);
+        long javaWallMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        RunUsage run = RunUsage.of(measurement.finish(), stopped ? null : folder.resolve(test + ".stat"), javaWallMs);
+        Integer signal = stopped ? null : run.getSignal() > 0 ? run.getSignal() : status > 128 ? status - 128 : 0;
+
+        String verdict = stopped && !outputExceeded ? "Wrong Answer" : run.limitVerdict(outputExceeded, status, limits);
+        if (verdict == null) {
+            verdict = matches ? "Accepted" : "Wrong Answer";
+        }
+        metrics.testRun(language, verdict, (exitedAt.get() != 0 ? exitedAt.get() : System.nanoTime()) - startedAt);
+        return new TestVerdict(test, verdict, run.getCpuTimeMs(), run.getWallTimeMs(), run.getMemoryKb(),
+                stopped ? null : status, signal);
+    }
+}
@@ -0,0 +1,25 @@
+package com.onlinejudge.backend.judge;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Verdict of a single test, where {@code test} is the 1-based position in the
+ * ordered list of tests, together with what the run consumed.
+ */
+@Getter
+@AllArgsConstructor
+public class TestVerdict {
+    private final int test;
+    private final String verdict;
+    private final long cpuTimeMs;
+    private final long wallTimeMs;
+    private final long memoryKb;
+    // Both null if the judge stopped the program
+    private final Integer exitCode;
+    private final Integer signal;
+
+    public boolean isAccepted() {
+        return "Accepted".equals(verdict);
+    }
+}
@@ -0,0 +1,51 @@
+package com.onlinejudge.backend.judge;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket of one user, refilled continuously. The rate and size are
+ * passed on each call, so buckets follow a configuration change.
+ */
+class TokenBucket {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(int burst, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * @return 0 if a token was taken, else how long until one is available
+     */
+    synchronized long take(double perSecond, int burst) {
+        refill(perSecond, burst);
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / perSecond * NANOS_PER_SECOND);
+    }
+
+    synchronized boolean isFull(double perSecond, int burst) {
+        refill(perSecond, burst);
+        return tokens >= burst;
+    }
+
+    /**
+     * Whole seconds for a Retry-After header: never less than the wait, and at least 1.
+     */
+    static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+    }
+
+    private void refill(double perSecond, int burst) {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (double) (now - refilledAt) / NANOS_PER_SECOND * perSecond);
+        refilledAt = now;
+    }
+}
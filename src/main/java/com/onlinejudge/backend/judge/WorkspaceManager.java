@@ -0,0 +1,254 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.sandbox.Sandbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * Hands out the directories submissions are compiled and run in, under the
+ * sandboxes' work directory, which is this node's own subdirectory of the
+ * configured one (see {@link JudgeNode}), so nodes sharing a host never
+ * reclaim each other's workspaces. That directory is meant to be a size-capped
+ * tmpfs mount, so workspaces never touch the disk and a runaway submission
+ * can only fill the mount. Every workspace is deleted when it is closed,
+ * whatever the outcome; directories that cannot be deleted yet are retried
+ * in the background, and whatever a previous run of this node left behind
+ * is removed at startup. judge.sh is read from the classpath once and
+ * written into each workspace from memory.
+ * <p>
+ * Each workspace has a sandbox id of its own, which its compiles and tests
+ * run as, user and group. The workspace belongs to the judge with that id as
+ * its group and the sticky bit set, so the sandbox can add files but cannot
+ * replace or change the judge's, such as judge.sh, the source and the staged
+ * tests; other workspaces are closed to it and the work directory cannot be
+ * listed. Handing out ids needs the judge to run as root.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class WorkspaceManager {
+    private static final Logger logger = LoggerFactory.getLogger(WorkspaceManager.class);
+
+    public static final String SUBMISSION = "sub_";
+    public static final String RUN = "run_";
+    private static final List<String> PREFIXES = List.of(SUBMISSION, RUN);
+    private static final String JUDGE_SCRIPT = "judge.sh";
+    private static final String TESTS = "tests";
+    // Traversable but not listable by the sandboxes
+    private static final int ROOT_MODE = 0711;
+    // Sticky: the sandbox's group may add files, only their owner may remove or rename them
+    private static final int WORKSPACE_MODE = 01770;
+    private static final int TESTS_MODE = 0755;
+    // Stale workspaces from before a restart; their ids are free already
+    private static final int NO_ID = -1;
+
+    private final Path root;
+    private final FileStore store;
+    private final byte[] judgeScript;
+    private final LinkedBlockingQueue<Integer> freeIds = new LinkedBlockingQueue<>();
+    // Workspace -> its sandbox id
+    private final Map<Path, Integer> active = new ConcurrentHashMap<>();
+    // Workspaces whose deletion failed, e.g. because a sandbox still held a file open; their ids stay taken
+    private final Map<Path, Integer> leftovers = new ConcurrentHashMap<>();
+    private final Counter reclaimed;
+    private final Counter reclaimFailures;
+
+    public WorkspaceManager(Sandbox sandbox,
+                            MeterRegistry meterRegistry,
+                            @Value("${spring.app.judge.workspace.requireTmpfs}") boolean requireTmpfs,
+                            @Value("${spring.app.judge.workspace.firstSandboxId}") int firstSandboxId,
+                            @Value("${spring.app.judge.workspace.sandboxIds}") int sandboxIds) throws IOException {
+        this.root = Files.createDirectories(sandbox.getWorkDir());
+        this.store = Files.getFileStore(root);
+        if (!"tmpfs".equals(store.type())) {
+            if (requireTmpfs) {
+                throw new IllegalStateException("Judge work directory " + root + " is on " + store.type() + ", not tmpfs");
+            }
+            logger.warn("Judge work directory {} is on {}; mount a size-capped tmpfs there", root, store.type());
+        }
+        try (InputStream in = new ClassPathResource(JUDGE_SCRIPT).getInputStream()) {
+            this.judgeScript = in.readAllBytes();
+        }
+        for (int id = firstSandboxId; id < firstSandboxId + sandboxIds; id++) {
+            freeIds.add(id);
+        }
+        try {
+            Files.setAttribute(root, "unix:mode", ROOT_MODE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot restrict access to the judge work directory " + root, e);
+        }
+
+        Gauge.builder("judge.workspaces.active", active, Map::size)
+                .description("Workspaces in use on this node")
+                .register(meterRegistry);
+        Gauge.builder("judge.workspaces.leftover", leftovers, Map::size)
+                .description("Workspaces waiting to be deleted again after a failed delete")
+                .register(meterRegistry);
+        Gauge.builder("judge.workspaces.used.bytes", this, WorkspaceManager::usedBytes)
+                .description("Bytes used on the file system of the work directory")
+                .register(meterRegistry);
+        Gauge.builder("judge.workspaces.capacity.bytes", this, WorkspaceManager::capacityBytes)
+                .description("Size of the file system of the work directory")
+                .register(meterRegistry);
+        this.reclaimed = Counter.builder("judge.workspaces.reclaimed")
+                .description("Workspaces deleted")
+                .register(meterRegistry);
+        this.reclaimFailures = Counter.builder("judge.workspaces.reclaim.failures")
+                .description("Attempts to delete a workspace that failed")
+                .register(meterRegistry);
+
+        reclaimStale();
+    }
+
+    /**
+     * Creates a workspace holding judge.sh and an empty tests directory, with
+     * a sandbox id of its own. Close it to delete it.
+     *
+     * @param prefix {@link #SUBMISSION} or {@link #RUN}
+     */
+    public Workspace create(String prefix) throws IOException {
+        Integer id = freeIds.poll();
+        if (id == null) {
+            throw new IllegalStateException("No free sandbox id for a new workspace");
+        }
+        String name = prefix + UUID.randomUUID();
+        Path dir;
+        try {
+            dir = Files.createDirectory(root.resolve(name));
+        } catch (IOException e) {
+            freeIds.add(id);
+            throw e;
+        }
+        active.put(dir, id);
+        try {
+            Files.setAttribute(dir, "unix:gid", id);
+            Files.setAttribute(dir, "unix:mode", WORKSPACE_MODE);
+            Files.setAttribute(Files.createDirectory(dir.resolve(TESTS)), "unix:mode", TESTS_MODE);
+            Path script = Files.write(dir.resolve(JUDGE_SCRIPT), judgeScript);
+            Files.setAttribute(script, "unix:mode", 0755);
+        } catch (IOException e) {
+            active.remove(dir);
+            delete(dir, id);
+            throw e;
+        }
+        return new Workspace(name, dir);
+    }
+
+    /**
+     * The id a sandbox runs commands in the workspace as: the group of its directory.
+     */
+    public static int sandboxIdOf(Path dir) throws IOException {
+        return (Integer) Files.getAttribute(dir, "unix:gid");
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.judge.workspace.retryMs}")
+    public void retryLeftovers() {
+        for (Map.Entry<Path, Integer> leftover : leftovers.entrySet()) {
+            leftovers.remove(leftover.getKey());
+            delete(leftover.getKey(), leftover.getValue());
+        }
+    }
+
+    // Workspaces of an earlier run of this node; nothing else works in its directory
+    private void reclaimStale() throws IOException {
+        int count = 0;
+        try (Stream<Path> entries = Files.list(root)) {
+            for (Path dir : (Iterable<Path>) entries::iterator) {
+                String name = dir.getFileName().toString();
+                if (Files.isDirectory(dir) && PREFIXES.stream().anyMatch(name::startsWith)) {
+                    delete(dir, NO_ID);
+                    count++;
+                }
+            }
+        }
+        if (count > 0) {
+            logger.info("Removed {} workspaces left over from a previous run", count);
+        }
+    }
+
+    // The id is only handed out again once nothing is left that its sandbox could reach
+    private void delete(Path dir, int id) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        } catch (NoSuchFileException e) {
+            // Already gone
+        } catch (IOException | UncheckedIOException e) {
+            reclaimFailures.increment();
+            logger.warn("Could not delete workspace {}, retrying later", dir, e);
+            leftovers.put(dir, id);
+            return;
+        }
+        reclaimed.increment();
+        if (id != NO_ID) {
+            freeIds.add(id);
+        }
+    }
+
+    private double usedBytes() {
+        try {
+            return store.getTotalSpace() - store.getUnallocatedSpace();
+        } catch (IOException e) {
+            return Double.NaN;
+        }
+    }
+
+    private double capacityBytes() {
+        try {
+            return store.getTotalSpace();
+        } catch (IOException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * A directory under the work directory, known to the sandboxes by its name.
+     */
+    public class Workspace implements AutoCloseable {
+        private final String name;
+        private final Path dir;
+
+        private Workspace(String name, Path dir) {
+            this.name = name;
+            this.dir = dir;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Path getDir() {
+            return dir;
+        }
+
+        @Override
+        public void close() {
+            Integer id = active.remove(dir);
+            if (id != null) {
+                delete(dir, id);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.onlinejudge.backend.judge.checker;
+
+import com.onlinejudge.backend.model.CheckerMode;
+import com.onlinejudge.backend.model.Problem;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Pattern;
+
+/**
+ * Compares a program's output with the expected output while it is being
+ * read, stopping at the first mismatch. Memory use is bounded by a small
+ * chunk buffer whatever the size of the output.
+ */
+public class OutputChecker {
+
+    public static final double DEFAULT_EPSILON = 1e-6;
+
+    private static final int CHUNK = 8192;
+    // Numeric tokens longer than this are compared as plain text
+    private static final int MAX_NUMBER_LENGTH = 64;
+    // Plain decimal or scientific notation; anything else Double.parseDouble takes (1d, 0x1p3, NaN) is text
+    private static final Pattern NUMBER = Pattern.compile("[+-]?(\\d+(\\.\\d*)?|\\.\\d+)([eE][+-]?\\d+)?");
+
+    private final CheckerMode mode;
+    private final double absoluteEpsilon;
+    private final double relativeEpsilon;
+
+    public OutputChecker(CheckerMode mode, double absoluteEpsilon, double relativeEpsilon) {
+        this.mode = mode;
+        this.absoluteEpsilon = absoluteEpsilon;
+        this.relativeEpsilon = relativeEpsilon;
+    }
+
+    public static OutputChecker forProblem(Problem problem) {
+        return new OutputChecker(
+                problem.getChecker() != null ? problem.getChecker() : CheckerMode.EXACT,
+                problem.getAbsoluteEpsilon() != null ? problem.getAbsoluteEpsilon() : DEFAULT_EPSILON,
+                problem.getRelativeEpsilon() != null ? problem.getRelativeEpsilon() : DEFAULT_EPSILON);
+    }
+
+    /**
+     * @return {@code true} if the actual output matches the expected one. On a
+     * mismatch the actual output is left partially read.
+     */
+    public boolean matches(Reader expected, Reader actual) throws IOException {
+        return switch (mode) {
+            case EXACT -> matchesExactly(new NormalizedReader(expected), new NormalizedReader(actual));
+            case WHITESPACE, FLOAT -> matchesTokens(new TokenReader(expected), new TokenReader(actual));
+        };
+    }
+
+    private boolean matchesExactly(NormalizedReader expected, NormalizedReader actual) throws IOException {
+        while (true) {
+            int e = expected.read();
+            int a = actual.read();
+            if (e != a) {
+                return false;
+            }
+            if (e == -1) {
+                return true;
+            }
+        }
+    }
+
+    private boolean matchesTokens(TokenReader expected, TokenReader actual) throws IOException {
+        StringBuilder expectedChunk = new StringBuilder();
+        StringBuilder actualChunk = new StringBuilder();
+        while (true) {
+            boolean hasExpected = expected.nextToken();
+            if (hasExpected != actual.nextToken()) {
+                return false;
+            }
+            if (!hasExpected) {
+                return true;
+            }
+
+            boolean first = true;
+            boolean tokenEnded;
+            do {
+                expectedChunk.setLength(0);
+                actualChunk.setLength(0);
+                int size = first && mode == CheckerMode.FLOAT ? MAX_NUMBER_LENGTH : CHUNK;
+                tokenEnded = expected.readChunk(expectedChunk, size);
+                if (tokenEnded != actual.readChunk(actualChunk, size)) {
+                    return false;
+                }
+                boolean numeric = first && tokenEnded && mode == CheckerMode.FLOAT;
+                if (!(numeric ? numbersMatch(expectedChunk, actualChunk) : contentEquals(expectedChunk, actualChunk))) {
+                    return false;
+                }
+                first = false;
+            } while (!tokenEnded);
+        }
+    }
+
+    private boolean numbersMatch(CharSequence expected, CharSequence actual) {
+        if (!NUMBER.matcher(expected).matches() || !NUMBER.matcher(actual).matches()) {
+            return contentEquals(expected, actual);
+        }
+        double e = Double.parseDouble(expected.toString());
+        double a = Double.parseDouble(actual.toString());
+        // Only reached through overflow, e.g. 1e400; the difference of two equal infinities is NaN
+        if (Double.isInfinite(e) || Double.isInfinite(a)) {
+            return e == a;
+        }
+        double diff = Math.abs(e - a);
+        return diff <= absoluteEpsilon || diff <= relativeEpsilon * Math.abs(e);
+    }
+
+    private static boolean contentEquals(CharSequence a, CharSequence b) {
+        return a.length() == b.length() && a.toString().contentEquals(b);
+    }
+
+    /**
+     * Yields the characters of a stream with CRLF turned into LF and newlines
+     * at the very end dropped. Newlines are held back as a count until a
+     * non-newline character shows they are not trailing.
+     */
+    private static class NormalizedReader {
+        private static final int NONE = -2;
+
+        private final Reader in;
+        private int pendingNewlines;
+        private int held = NONE;
+        private int lookahead = NONE;
+
+        NormalizedReader(Reader in) {
+            this.in = in;
+        }
+
+        int read() throws IOException {
+            if (held != NONE) {
+                if (pendingNewlines > 0) {
+                    pendingNewlines--;
+                    return '\n';
+                }
+                int c = held;
+                held = NONE;
+                return c;
+            }
+            while (true) {
+                int c = nextRaw();
+                if (c == '\r') {
+                    int next = nextRaw();
+                    if (next == '\n') {
+                        c = '\n';
+                    } else {
+                        lookahead = next;
+                    }
+                }
+                if (c == '\n') {
+                    pendingNewlines++;
+                    continue;
+                }
+                if (c == -1) {
+                    pendingNewlines = 0;
+                    return -1;
+                }
+                if (pendingNewlines > 0) {
+                    pendingNewlines--;
+                    held = c;
+                    return '\n';
+                }
+                return c;
+            }
+        }
+
+        private int nextRaw() throws IOException {
+            if (lookahead != NONE) {
+                int c = lookahead;
+                lookahead = NONE;
+                return c;
+            }
+            return in.read();
+        }
+    }
+}
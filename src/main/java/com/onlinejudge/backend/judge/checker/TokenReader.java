@@ -0,0 +1,57 @@
+package com.onlinejudge.backend.judge.checker;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads whitespace-separated tokens in bounded chunks, so arbitrarily long
+ * tokens can be compared without holding them in memory.
+ */
+class TokenReader {
+    private static final int NONE = -2;
+
+    private final Reader in;
+    private int peeked = NONE;
+
+    TokenReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Skips whitespace up to the start of the next token.
+     *
+     * @return {@code false} if the input ended first
+     */
+    boolean nextToken() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && Character.isWhitespace(c)) {
+            peeked = NONE;
+        }
+        return c != -1;
+    }
+
+    /**
+     * Appends up to {@code max} characters of the current token.
+     *
+     * @return {@code true} if the token ended within the chunk
+     */
+    boolean readChunk(StringBuilder chunk, int max) throws IOException {
+        for (int i = 0; i < max; i++) {
+            int c = peek();
+            if (c == -1 || Character.isWhitespace(c)) {
+                return true;
+            }
+            chunk.append((char) c);
+            peeked = NONE;
+        }
+        int c = peek();
+        return c == -1 || Character.isWhitespace(c);
+    }
+
+    private int peek() throws IOException {
+        if (peeked == NONE) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+}
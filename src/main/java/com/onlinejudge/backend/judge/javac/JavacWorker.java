@@ -0,0 +1,166 @@
+package com.onlinejudge.backend.judge.javac;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Main class of the compiler JVMs started by {@code JavaCompilerService}.
+ * Uses nothing but the JDK: the classes of this package are copied out of
+ * the judge's class path and run on their own.
+ * <p>
+ * Arguments are the javac options. Once warmed up the worker writes
+ * {@code true} to stdout, then compiles one source per request until stdin
+ * is closed:
+ * <pre>
+ * request:  file name (UTF), source length (int), source (UTF-8 bytes)
+ * response: success (boolean), log length (int), log (UTF-8 bytes), class count (int),
+ *           then per class its binary name (UTF), length (int) and bytes
+ * </pre>
+ * Anything else javac prints goes to stderr, so it cannot corrupt a response.
+ */
+public final class JavacWorker {
+
+    private JavacWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(System.err);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            System.err.println("No system Java compiler");
+            System.exit(2);
+        }
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        // Nothing but the platform classes
+        fileManager.setLocation(StandardLocation.CLASS_PATH, List.of());
+        fileManager.setLocation(StandardLocation.SOURCE_PATH, List.of());
+        List<String> options = List.of(args);
+
+        // Loads the platform classes of the release before the first submission
+        compile(compiler, fileManager, options, "Main.java",
+                "public class Main { public static void main(String[] a) { } }", new StringWriter());
+        out.writeBoolean(true);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        while (true) {
+            String filename;
+            try {
+                filename = in.readUTF();
+            } catch (EOFException e) {
+                return;
+            }
+            String source = new String(readBytes(in), StandardCharsets.UTF_8);
+            StringWriter log = new StringWriter();
+            MemoryFileManager memory = compile(compiler, fileManager, options, filename, source, log);
+
+            out.writeBoolean(memory.success);
+            writeBytes(out, log.toString().getBytes(StandardCharsets.UTF_8));
+            out.writeInt(memory.classes.size());
+            for (Map.Entry<String, byte[]> entry : memory.classes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeBytes(out, entry.getValue());
+            }
+            out.flush();
+        }
+    }
+
+    public static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative length " + length);
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException();
+        }
+        return bytes;
+    }
+
+    public static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static MemoryFileManager compile(JavaCompiler compiler, StandardJavaFileManager fileManager,
+                                             List<String> options, String filename, String source, StringWriter log) {
+        MemoryFileManager memory = new MemoryFileManager(fileManager);
+        memory.success = compiler.getTask(log, memory, null, options, null,
+                List.of(new SourceFile(filename, source))).call();
+        return memory;
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceFile(String filename, String source) {
+            super(URI.create("string:///" + filename), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+        // As javac would name it in the compile log
+        @Override
+        public String getName() {
+            return toUri().getPath().substring(1);
+        }
+    }
+
+    // Keeps class files in memory by binary name; everything else goes to the shared file manager
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, byte[]> classes = new LinkedHashMap<>();
+        private boolean success;
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+
+        // The shared file manager outlives this compile
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+import com.onlinejudge.backend.judge.ConditionalOnJudgeWorker;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads CPU time, peak memory and OOM kills of a sandbox slot from its
+ * cgroup v2 directory on the host. Only one test runs in a slot at a
+ * time, so the difference between two readings belongs to that test.
+ * Numbers that cannot be read (no cgroup v2, no access, kernel without
+ * resettable memory.peak) are reported as -1.
+ */
+@Component
+@ConditionalOnJudgeWorker
+@RequiredArgsConstructor
+public class CgroupMeter {
+
+    private final Sandbox sandbox;
+
+    public Measurement start(SandboxSlot slot) {
+        return new Measurement(sandbox.cgroupOf(slot));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Usage {
+        private final long cpuTimeMs;
+        private final long peakMemoryKb;
+        private final boolean oomKilled;
+    }
+
+    public static class Measurement {
+        private final Path dir;
+        private final long cpuUsecBefore;
+        private final long oomKillsBefore;
+        private FileChannel peak;
+
+        private Measurement(Path dir) {
+            this.dir = dir;
+            this.cpuUsecBefore = readKey(dir, "cpu.stat", "usage_usec");
+            this.oomKillsBefore = readKey(dir, "memory.events", "oom_kill");
+            this.peak = openPeak(dir);
+        }
+
+        public Usage finish() {
+            long cpuUsec = readKey(dir, "cpu.stat", "usage_usec");
+            long oomKills = readKey(dir, "memory.events", "oom_kill");
+            long peakBytes = readPeak();
+            return new Usage(
+                    cpuUsec >= 0 && cpuUsecBefore >= 0 ? (cpuUsec - cpuUsecBefore) / 1000 : -1,
+                    peakBytes >= 0 ? peakBytes / 1024 : -1,
+                    oomKills > oomKillsBefore && oomKillsBefore >= 0);
+        }
+
+        // Writing to memory.peak resets it for reads through the same descriptor (Linux 6.12+)
+        private static FileChannel openPeak(Path dir) {
+            if (dir == null) {
+                return null;
+            }
+            try {
+                FileChannel channel = FileChannel.open(dir.resolve("memory.peak"),
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try {
+                    channel.write(ByteBuffer.wrap("reset\n".getBytes(StandardCharsets.US_ASCII)));
+                    return channel;
+                } catch (IOException e) {
+                    channel.close();
+                    return null;
+                }
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private long readPeak() {
+            if (peak == null) {
+                return -1;
+            }
+            try (FileChannel channel = peak) {
+                ByteBuffer buffer = ByteBuffer.allocate(32);
+                channel.read(buffer, 0);
+                return Long.parseLong(new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII).trim());
+            } catch (IOException | NumberFormatException e) {
+                return -1;
+            } finally {
+                peak = null;
+            }
+        }
+
+        private static long readKey(Path dir, String file, String key) {
+            if (dir == null) {
+                return -1;
+            }
+            try {
+                for (String line : Files.readAllLines(dir.resolve(file))) {
+                    if (line.startsWith(key + " ")) {
+                        return Long.parseLong(line.substring(key.length() + 1).trim());
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // Controller not available for this cgroup
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+import com.onlinejudge.backend.judge.ConditionalOnJudgeWorker;
+import com.onlinejudge.backend.judge.JudgeNode;
+import com.onlinejudge.backend.judge.Language;
+import com.onlinejudge.backend.judge.LanguageRegistry;
+import com.onlinejudge.backend.judge.Limits;
+import com.onlinejudge.backend.judge.TestDataCache;
+import com.onlinejudge.backend.judge.WorkspaceManager;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a number of warm, network-less containers per language so that tests
+ * are executed with {@code docker exec} instead of a full {@code docker run}.
+ * Every container mounts the node's own work directory, a subdirectory of the
+ * configured one named after the node, at {@link #CONTAINER_WORK_DIR}, and the
+ * test data cache read-only at its own path, which the staged tests link to,
+ * and idles as nobody; commands are exec'd as the sandbox id of their
+ * workspace, which cannot reach any other workspace, with setuid escalation
+ * disabled. A leased container is reset before it is handed out again and
+ * recycled after a configured number of uses. A leased container is pinned to a core of
+ * its own when a judge cpuset is configured. Containers are labelled with the
+ * {@link JudgeNode} that started them, and at startup a node removes only its
+ * own, so nodes can share a docker daemon. This is the default sandbox.
+ */
+@Component
+@ConditionalOnJudgeWorker
+@ConditionalOnProperty(name = "spring.app.judge.sandbox", havingValue = "docker", matchIfMissing = true)
+public class ContainerPool implements Sandbox {
+    private static final Logger logger = LoggerFactory.getLogger(ContainerPool.class);
+
+    public static final String CONTAINER_WORK_DIR = "/judge";
+    private static final String POOL_LABEL = "onlinejudge.pool";
+    private static final String NODE_LABEL = "onlinejudge.node";
+    private static final String NOBODY = "65534:65534";
+    // Everything in the container but its init process
+    private static final String KILL_ALL = "kill -9 -1 2>/dev/null";
+
+    private final CoreAllocator cores;
+    private final LanguageRegistry languages;
+    private final String node;
+    private final Path workDir;
+    private final Path testDir;
+    private final Path cgroupRoot;
+    private final int compileMemoryMb;
+    private final int pidsLimit;
+    private final int maxUses;
+    private final long leaseTimeoutMs;
+    private final Map<String, LanguagePool> pools = new ConcurrentHashMap<>();
+    private final AtomicInteger leased = new AtomicInteger();
+
+    public ContainerPool(CoreAllocator cores,
+                         LanguageRegistry languages,
+                         JudgeNode node,
+                         TestDataCache testDataCache,
+                         @Value("${spring.app.judge.workDir}") String workDir,
+                         @Value("${spring.app.judge.cgroupRoot}") String cgroupRoot,
+                         @Value("${spring.app.judge.compileMemoryMb}") int compileMemoryMb,
+                         @Value("${spring.app.judge.pool.pidsLimit}") int pidsLimit,
+                         @Value("#{${spring.app.judge.pool.sizes}}") Map<String, Integer> poolSizes,
+                         @Value("${spring.app.judge.pool.maxUses}") int maxUses,
+                         @Value("${spring.app.judge.pool.leaseTimeoutMs}") long leaseTimeoutMs) {
+        this.cores = cores;
+        this.languages = languages;
+        this.node = node.getName();
+        this.workDir = Paths.get(workDir).toAbsolutePath().resolve(this.node);
+        this.testDir = testDataCache.getDir();
+        this.cgroupRoot = Paths.get(cgroupRoot);
+        this.compileMemoryMb = compileMemoryMb;
+        this.pidsLimit = pidsLimit;
+        this.maxUses = maxUses;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        for (Language language : languages.getAll()) {
+            pools.put(language.getId(), new LanguagePool(language.getId(), poolSizes.getOrDefault(language.getId(), 1)));
+        }
+    }
+
+    @Override
+    public Path getWorkDir() {
+        return workDir;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            Files.createDirectories(workDir);
+            removeStaleContainers();
+        } catch (Exception e) {
+            logger.error("Could not prepare sandbox containers", e);
+            return;
+        }
+        pools.values().forEach(LanguagePool::refill);
+    }
+
+    @Override
+    public PooledContainer lease(String language) throws IOException, InterruptedException {
+        LanguagePool pool = pools.get(language);
+        if (pool == null) {
+            throw new IllegalArgumentException("No sandbox pool for language " + language);
+        }
+        PooledContainer container = pool.idle.pollFirst(leaseTimeoutMs, TimeUnit.MILLISECONDS);
+        if (container == null) {
+            // Nothing came back in time, most likely because containers failed to start
+            pool.refill();
+            container = pool.idle.pollFirst(leaseTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        if (container == null) {
+            throw new SandboxUnavailableException(language);
+        }
+        container.markUsed();
+        leased.incrementAndGet();
+        try {
+            pin(container, cores.acquire(container.getCpusetCore(), leaseTimeoutMs));
+            applyLimits(container, compileMemoryMb);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            release(container);
+            throw e;
+        }
+        return container;
+    }
+
+    /**
+     * Takes an idle container for the language only if one is available right
+     * now, together with a free core if pinning is on. Used for optional extra
+     * sandboxes so a submission that already holds a container never waits for
+     * a second one.
+     */
+    @Override
+    public PooledContainer tryLease(String language) {
+        LanguagePool pool = pools.get(language);
+        PooledContainer container = pool == null ? null : pool.idle.pollFirst();
+        if (container == null) {
+            return null;
+        }
+        Integer core = cores.tryAcquire(container.getCpusetCore());
+        if (core == null) {
+            pool.idle.addFirst(container);
+            return null;
+        }
+        container.markUsed();
+        leased.incrementAndGet();
+        try {
+            pin(container, core);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not pin sandbox container {} to core {}", container.getId(), core, e);
+            release(container);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(container);
+            return null;
+        }
+        return container;
+    }
+
+    // Holds the core for the lease; the container's cpuset only changes when it moves to another core
+    private void pin(PooledContainer container, int core) throws IOException, InterruptedException {
+        container.setHeldCore(core);
+        if (core == CoreAllocator.UNPINNED || container.getCpusetCore() == core) {
+            return;
+        }
+        DockerCli.run("update", "--cpuset-cpus=" + core, container.getId());
+        container.setCpusetCore(core);
+    }
+
+    /**
+     * Sets the container's memory limit (swap disabled) unless it already has it.
+     */
+    @Override
+    public void applyLimits(SandboxSlot slot, int memoryMb) throws IOException, InterruptedException {
+        PooledContainer container = (PooledContainer) slot;
+        if (container.getMemoryMb() == memoryMb) {
+            return;
+        }
+        DockerCli.run("update", "--memory=" + memoryMb + "m", "--memory-swap=" + memoryMb + "m", container.getId());
+        container.setMemoryMb(memoryMb);
+    }
+
+    /**
+     * Resets the container and returns it to the pool, or replaces it when it
+     * has been used too often or cannot be reset.
+     */
+    @Override
+    public void release(SandboxSlot slot) {
+        PooledContainer container = (PooledContainer) slot;
+        leased.decrementAndGet();
+        cores.release(container.getHeldCore());
+        container.setHeldCore(CoreAllocator.UNPINNED);
+        LanguagePool pool = pools.get(container.getLanguage());
+        boolean reusable = container.getUses() < maxUses && reset(container);
+        if (reusable) {
+            pool.idle.addLast(container);
+            return;
+        }
+        pool.discard(container);
+        pool.refill();
+    }
+
+    @Override
+    public int exec(SandboxSlot slot, String workspace, String... command) throws IOException, InterruptedException {
+        Process proc = new ProcessBuilder(execCommand(slot, workspace, command))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        return Processes.awaitExit(proc);
+    }
+
+    /**
+     * Runs the test through judge.sh, which applies the CPU, wall-clock and
+     * file size limits inside the container and records GNU time statistics.
+     */
+    @Override
+    public Process run(SandboxSlot slot, String workspace, String language, String filename, int test, Limits limits,
+                       ProcessBuilder.Redirect stderr) throws IOException {
+        return new ProcessBuilder(execCommand(slot, workspace,
+                "bash", "judge.sh", "run", languages.get(language).getRun(), String.valueOf(test),
+                String.valueOf(limits.getCpuLimitSeconds()), String.valueOf(limits.getWallTimeMs() / 1000.0),
+                String.valueOf(limits.getOutputBytes() / 1024)))
+                .redirectError(stderr)
+                .start();
+    }
+
+    // Killing docker exec leaves the program running in the container; kill it there, as root
+    @Override
+    public void stop(SandboxSlot slot, Process proc) {
+        proc.destroyForcibly();
+        try {
+            DockerCli.run("exec", "-u", "0", slot.getId(), "sh", "-c", KILL_ALL + "; true");
+        } catch (IOException e) {
+            logger.warn("Could not stop the program in sandbox container {}", slot.getId(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public int capacity(String language) {
+        LanguagePool pool = pools.get(language);
+        return pool == null ? 0 : pool.size;
+    }
+
+    @Override
+    public int leasedSlots() {
+        return leased.get();
+    }
+
+    // Location depends on docker's cgroup driver
+    @Override
+    public Path cgroupOf(SandboxSlot slot) {
+        for (Path candidate : List.of(
+                cgroupRoot.resolve("system.slice").resolve("docker-" + slot.getId() + ".scope"),
+                cgroupRoot.resolve("docker").resolve(slot.getId()))) {
+            if (Files.isDirectory(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private List<String> execCommand(SandboxSlot slot, String workspace, String... command) throws IOException {
+        int id = WorkspaceManager.sandboxIdOf(workDir.resolve(workspace));
+        List<String> args = new ArrayList<>();
+        args.add("docker");
+        args.add("exec");
+        args.add("-u");
+        args.add(id + ":" + id);
+        args.add("-w");
+        args.add(CONTAINER_WORK_DIR + "/" + workspace);
+        args.add(slot.getId());
+        args.addAll(List.of(command));
+        return args;
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.judge.pool.healthCheckMs}")
+    public void healthCheck() {
+        for (LanguagePool pool : pools.values()) {
+            int idleCount = pool.idle.size();
+            for (int i = 0; i < idleCount; i++) {
+                PooledContainer container = pool.idle.pollFirst();
+                if (container == null) {
+                    break;
+                }
+                if (isRunning(container)) {
+                    pool.idle.addLast(container);
+                } else {
+                    logger.warn("Sandbox container {} is unhealthy, replacing it", container.getId());
+                    pool.discard(container);
+                }
+            }
+            pool.refill();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (LanguagePool pool : pools.values()) {
+            PooledContainer container;
+            while ((container = pool.idle.pollFirst()) != null) {
+                pool.discard(container);
+            }
+        }
+    }
+
+    // As root, which can kill what every sandbox id left behind
+    private boolean reset(PooledContainer container) {
+        try {
+            DockerCli.run("exec", "-u", "0", container.getId(), "sh", "-c",
+                    KILL_ALL + "; rm -rf /tmp/* /tmp/.[!.]* 2>/dev/null; true");
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to reset sandbox container {}", container.getId(), e);
+            return false;
+        }
+    }
+
+    private boolean isRunning(PooledContainer container) {
+        try {
+            return "true".equals(DockerCli.run("inspect", "-f", "{{.State.Running}}", container.getId()));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Containers of an earlier run of this node; other nodes on the daemon keep theirs
+    private void removeStaleContainers() throws IOException, InterruptedException {
+        String ids = DockerCli.run("ps", "-aq", "--filter", "label=" + NODE_LABEL + "=" + node);
+        for (String id : ids.split("\\s+")) {
+            if (!id.isBlank()) {
+                DockerCli.run("rm", "-f", id);
+            }
+        }
+    }
+
+    private class LanguagePool {
+        private final String language;
+        private final int size;
+        private final LinkedBlockingDeque<PooledContainer> idle = new LinkedBlockingDeque<>();
+        private final AtomicInteger alive = new AtomicInteger();
+
+        LanguagePool(String language, int size) {
+            this.language = language;
+            this.size = size;
+        }
+
+        void refill() {
+            while (alive.incrementAndGet() <= size) {
+                try {
+                    idle.addLast(start());
+                } catch (Exception e) {
+                    alive.decrementAndGet();
+                    logger.error("Failed to start {} sandbox container", language, e);
+                    return;
+                }
+            }
+            alive.decrementAndGet();
+        }
+
+        void discard(PooledContainer container) {
+            alive.decrementAndGet();
+            try {
+                DockerCli.run("rm", "-f", container.getId());
+            } catch (Exception e) {
+                logger.warn("Failed to remove sandbox container {}", container.getId(), e);
+            }
+        }
+
+        private PooledContainer start() throws IOException, InterruptedException {
+            String id = DockerCli.run("run", "-d", "--rm",
+                    "--label", POOL_LABEL + "=" + language,
+                    "--label", NODE_LABEL + "=" + node,
+                    "--network", "none",
+                    // A fork bomb exhausts its own container, not the host
+                    "--pids-limit", String.valueOf(pidsLimit),
+                    "--user", NOBODY,
+                    "--security-opt", "no-new-privileges",
+                    "--memory=" + compileMemoryMb + "m", "--memory-swap=" + compileMemoryMb + "m",
+                    "-v", workDir + ":" + CONTAINER_WORK_DIR,
+                    "-v", testDir + ":" + testDir + ":ro",
+                    languages.get(language).getImage(),
+                    "sleep", "infinity");
+            return new PooledContainer(id, language, compileMemoryMb);
+        }
+    }
+}
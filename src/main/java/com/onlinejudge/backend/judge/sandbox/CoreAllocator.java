@@ -0,0 +1,128 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+import com.onlinejudge.backend.judge.ConditionalOnJudgeWorker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out the cores of {@code spring.app.judge.cpuset}, one to each leased
+ * sandbox slot, so a submission's compile and run steps always have a core
+ * to themselves and measured CPU times do not depend on what else the host
+ * is doing. The cores are meant to be isolated from the scheduler (e.g.
+ * {@code isolcpus} or a systemd {@code AllowedCPUs=} slice for everything
+ * else). With no cpuset configured, slots are not pinned.
+ */
+@Component
+@ConditionalOnJudgeWorker
+public class CoreAllocator {
+    private static final Logger logger = LoggerFactory.getLogger(CoreAllocator.class);
+
+    public static final int UNPINNED = -1;
+    // Largest CONFIG_NR_CPUS the kernel allows
+    private static final int MAX_CORES = 8192;
+
+    private final List<Integer> cores;
+    private final LinkedBlockingQueue<Integer> free = new LinkedBlockingQueue<>();
+
+    public CoreAllocator(MeterRegistry meterRegistry,
+                         @Value("${spring.app.judge.cpuset:}") String cpuset) {
+        this.cores = parse(cpuset);
+        free.addAll(cores);
+        if (isEnabled()) {
+            logger.info("Pinning sandboxes to cores {}", cores);
+        }
+        Gauge.builder("judge.cores.free", free, LinkedBlockingQueue::size)
+                .description("Cores of the judge cpuset not leased to a sandbox")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return !cores.isEmpty();
+    }
+
+    /**
+     * Number of cores to share out, 0 if pinning is off.
+     */
+    public int size() {
+        return cores.size();
+    }
+
+    /**
+     * Takes a free core, preferring {@code preferred} so that a slot keeps its
+     * core and needs no re-pinning, and waits up to the timeout for one.
+     *
+     * @return the core, or {@link #UNPINNED} if pinning is off
+     */
+    public int acquire(int preferred, long timeoutMs) throws InterruptedException {
+        if (!isEnabled()) {
+            return UNPINNED;
+        }
+        if (preferred != UNPINNED && free.remove(preferred)) {
+            return preferred;
+        }
+        Integer core = free.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (core == null) {
+            throw new IllegalStateException("No free core in the judge cpuset");
+        }
+        return core;
+    }
+
+    /**
+     * Same as {@link #acquire} without waiting.
+     *
+     * @return the core, {@link #UNPINNED} if pinning is off, or {@code null} if all cores are taken
+     */
+    public Integer tryAcquire(int preferred) {
+        if (!isEnabled()) {
+            return UNPINNED;
+        }
+        if (preferred != UNPINNED && free.remove(preferred)) {
+            return preferred;
+        }
+        return free.poll();
+    }
+
+    public void release(int core) {
+        if (core != UNPINNED) {
+            free.add(core);
+        }
+    }
+
+    // Kernel cpuset syntax: "2-5,8,10-11"
+    static List<Integer> parse(String cpuset) {
+        Set<Integer> cores = new LinkedHashSet<>();
+        for (String part : cpuset.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            int dash = part.indexOf('-');
+            int first;
+            int last;
+            try {
+                first = Integer.parseInt(dash < 0 ? part : part.substring(0, dash).trim());
+                last = dash < 0 ? first : Integer.parseInt(part.substring(dash + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cpuset range " + part, e);
+            }
+            if (first < 0 || last < first || last >= MAX_CORES) {
+                throw new IllegalArgumentException("Invalid cpuset range " + part);
+            }
+            for (int core = first; core <= last; core++) {
+                cores.add(core);
+            }
+        }
+        return new ArrayList<>(cores);
+    }
+}
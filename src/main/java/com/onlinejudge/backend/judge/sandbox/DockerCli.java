@@ -0,0 +1,39 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thin wrapper around the docker command line used to manage sandbox containers.
+ */
+public final class DockerCli {
+
+    private DockerCli() {
+    }
+
+    /**
+     * Runs a docker command and returns its trimmed output, failing if docker
+     * exits with a non-zero status.
+     */
+    public static String run(String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(args.length + 1);
+        command.add("docker");
+        command.addAll(List.of(args));
+
+        Process proc = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .start();
+        String output;
+        try (InputStream in = proc.getInputStream()) {
+            output = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        int status = Processes.awaitExit(proc);
+        if (status != 0) {
+            throw new IOException("docker " + args[0] + " failed with status " + status + ": " + output);
+        }
+        return output;
+    }
+}
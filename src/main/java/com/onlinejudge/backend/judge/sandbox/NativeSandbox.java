@@ -0,0 +1,311 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+import com.onlinejudge.backend.judge.ConditionalOnJudgeWorker;
+import com.onlinejudge.backend.judge.JudgeNode;
+import com.onlinejudge.backend.judge.LanguageRegistry;
+import com.onlinejudge.backend.judge.Limits;
+import com.onlinejudge.backend.judge.TestDataCache;
+import com.onlinejudge.backend.judge.WorkspaceManager;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Sandbox that launches commands directly on the judge host with nsjail
+ * instead of going through the docker daemon. Every command gets fresh user,
+ * mount, pid, ipc, uts and network namespaces, a read-only view of the host
+ * toolchain and of the test data cache its staged tests link to, plus its
+ * workspace, a seccomp filter, and runs as the sandbox id of its workspace,
+ * mapped to the same id on the host. Each slot owns a cgroup
+ * v2 directory below {@code native.cgroup}; nsjail places the command in a
+ * child of it with the memory and pids limits, so the slot's cgroup accounts
+ * for the command exactly as a container's does. With a judge cpuset, the
+ * slot's cgroup is restricted to the core it holds while leased.
+ * <p>
+ * Tests run the compiled program itself, not judge.sh. The CPU limit is
+ * RLIMIT_CPU and the wall-clock limit a watchdog here, so the exit statuses
+ * match the docker sandbox.
+ */
+@Component
+@ConditionalOnJudgeWorker
+@ConditionalOnProperty(name = "spring.app.judge.sandbox", havingValue = "native")
+public class NativeSandbox implements Sandbox {
+    private static final Logger logger = LoggerFactory.getLogger(NativeSandbox.class);
+
+    private static final String JAIL_WORK_DIR = "/judge";
+    private static final int COMPILE_CPU_LIMIT_S = 30;
+    private static final int COMPILE_TIME_LIMIT_S = 60;
+    private static final int FILE_SIZE_LIMIT_MB = 64;
+    // System calls a submission never needs; everything else is left to the namespaces
+    private static final String SECCOMP_POLICY = "POLICY judge { KILL { "
+            + "ptrace, process_vm_readv, process_vm_writev, mount, umount2, pivot_root, chroot, "
+            + "reboot, kexec_load, init_module, finit_module, delete_module, bpf, perf_event_open, "
+            + "keyctl, add_key, request_key, unshare, setns, swapon, swapoff, settimeofday, clock_settime "
+            + "} } USE judge DEFAULT ALLOW";
+
+    private final CoreAllocator cores;
+    private final LanguageRegistry languages;
+    private final Path workDir;
+    private final Path cgroupDir;
+    private final String nsjail;
+    private final List<String> mounts;
+    private final int compileMemoryMb;
+    private final int pidsLimit;
+    private final long leaseTimeoutMs;
+    private final int slots;
+    private final LinkedBlockingQueue<NativeSlot> idle = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService watchdogs = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sandbox-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public NativeSandbox(CoreAllocator cores,
+                         LanguageRegistry languages,
+                         JudgeNode node,
+                         TestDataCache testDataCache,
+                         @Value("${spring.app.judge.workDir}") String workDir,
+                         @Value("${spring.app.judge.compileMemoryMb}") int compileMemoryMb,
+                         @Value("${spring.app.judge.pool.leaseTimeoutMs}") long leaseTimeoutMs,
+                         @Value("${spring.app.judge.native.nsjail}") String nsjail,
+                         @Value("${spring.app.judge.native.cgroup}") String cgroupDir,
+                         @Value("${spring.app.judge.native.slots}") int slots,
+                         @Value("${spring.app.judge.native.pidsLimit}") int pidsLimit,
+                         @Value("${spring.app.judge.native.mounts}") List<String> mounts) throws IOException {
+        this.cores = cores;
+        this.languages = languages;
+        // Each node on the host works in a directory of its own
+        this.workDir = Files.createDirectories(Paths.get(workDir).toAbsolutePath().resolve(node.getName()));
+        this.cgroupDir = Paths.get(cgroupDir);
+        this.nsjail = nsjail;
+        this.compileMemoryMb = compileMemoryMb;
+        this.pidsLimit = pidsLimit;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.slots = slots;
+        // The staged tests link into the test data cache, so it is mounted where the judge has it
+        this.mounts = Stream.concat(mounts.stream().filter(mount -> Files.exists(Paths.get(mount))),
+                Stream.of(testDataCache.getDir().toString())).toList();
+
+        // Controllers have to be enabled on every level down to the cgroups nsjail creates
+        Files.createDirectories(this.cgroupDir);
+        enableControllers(this.cgroupDir.getParent(), cores.isEnabled());
+        enableControllers(this.cgroupDir, cores.isEnabled());
+        for (int i = 1; i <= slots; i++) {
+            Path slotDir = Files.createDirectories(this.cgroupDir.resolve("slot-" + i));
+            enableControllers(slotDir, cores.isEnabled());
+            idle.add(new NativeSlot("slot-" + i, slotDir));
+        }
+        logger.info("Native sandbox ready with {} slots under {}", slots, this.cgroupDir);
+    }
+
+    @Override
+    public Path getWorkDir() {
+        return workDir;
+    }
+
+    @Override
+    public SandboxSlot lease(String language) throws IOException, InterruptedException {
+        NativeSlot slot = idle.poll(leaseTimeoutMs, TimeUnit.MILLISECONDS);
+        if (slot == null) {
+            throw new SandboxUnavailableException(language);
+        }
+        try {
+            pin(slot, cores.acquire(slot.cpusetCore, leaseTimeoutMs));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            release(slot);
+            throw e;
+        }
+        slot.language = language;
+        slot.memoryMb = compileMemoryMb;
+        return slot;
+    }
+
+    @Override
+    public SandboxSlot tryLease(String language) {
+        NativeSlot slot = idle.poll();
+        if (slot == null) {
+            return null;
+        }
+        Integer core = cores.tryAcquire(slot.cpusetCore);
+        if (core == null) {
+            idle.add(slot);
+            return null;
+        }
+        try {
+            pin(slot, core);
+        } catch (IOException e) {
+            logger.warn("Could not pin sandbox {} to core {}", slot.id, core, e);
+            release(slot);
+            return null;
+        }
+        slot.language = language;
+        slot.memoryMb = compileMemoryMb;
+        return slot;
+    }
+
+    // Child cgroups created by nsjail inherit the slot's cpuset
+    private void pin(NativeSlot slot, int core) throws IOException {
+        slot.heldCore = core;
+        if (core == CoreAllocator.UNPINNED || slot.cpusetCore == core) {
+            return;
+        }
+        Files.writeString(slot.cgroup.resolve("cpuset.cpus"), String.valueOf(core));
+        slot.cpusetCore = core;
+    }
+
+    // Limits are passed to nsjail with every command
+    @Override
+    public void applyLimits(SandboxSlot slot, int memoryMb) {
+        ((NativeSlot) slot).memoryMb = memoryMb;
+    }
+
+    @Override
+    public void release(SandboxSlot slot) {
+        NativeSlot nativeSlot = (NativeSlot) slot;
+        kill(nativeSlot);
+        cores.release(nativeSlot.heldCore);
+        nativeSlot.heldCore = CoreAllocator.UNPINNED;
+        idle.add(nativeSlot);
+    }
+
+    @Override
+    public int exec(SandboxSlot slot, String workspace, String... command) throws IOException, InterruptedException {
+        NativeSlot nativeSlot = (NativeSlot) slot;
+        Process proc = new ProcessBuilder(jailCommand(nativeSlot, workspace, COMPILE_CPU_LIMIT_S,
+                COMPILE_TIME_LIMIT_S, FILE_SIZE_LIMIT_MB, List.of(command)))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        return Processes.awaitExit(proc);
+    }
+
+    @Override
+    public Process run(SandboxSlot slot, String workspace, String language, String filename, int test, Limits limits,
+                       ProcessBuilder.Redirect stderr) throws IOException {
+        NativeSlot nativeSlot = (NativeSlot) slot;
+        // nsjail's own time limit is only a backstop for the watchdog
+        long wallBackstopS = limits.getWallTimeMs() / 1000 + 2;
+        long fileSizeMb = Math.max(1, (limits.getOutputBytes() + (1 << 20) - 1) >> 20);
+        Process proc = new ProcessBuilder(jailCommand(nativeSlot, workspace, limits.getCpuLimitSeconds(),
+                wallBackstopS, fileSizeMb, languages.get(language).runArgs()))
+                .redirectInput(workDir.resolve(workspace).resolve("tests").resolve(test + ".in").toFile())
+                .redirectError(stderr)
+                .start();
+        return new WallClockProcess(proc, limits.getWallTimeMs(), watchdogs, () -> kill(nativeSlot));
+    }
+
+    @Override
+    public void stop(SandboxSlot slot, Process proc) {
+        proc.destroyForcibly();
+        kill((NativeSlot) slot);
+    }
+
+    // Slots are not tied to a language
+    @Override
+    public int capacity(String language) {
+        return slots;
+    }
+
+    @Override
+    public int leasedSlots() {
+        return slots - idle.size();
+    }
+
+    @Override
+    public Path cgroupOf(SandboxSlot slot) {
+        return ((NativeSlot) slot).cgroup;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdogs.shutdownNow();
+    }
+
+    private List<String> jailCommand(NativeSlot slot, String workspace, long cpuLimitS, long timeLimitS,
+                                     long fileSizeMb, List<String> command) throws IOException {
+        int id = WorkspaceManager.sandboxIdOf(workDir.resolve(workspace));
+        List<String> args = new ArrayList<>(List.of(
+                nsjail, "--mode", "o", "--quiet",
+                "--user", id + ":" + id + ":1",
+                "--group", id + ":" + id + ":1",
+                "--cwd", JAIL_WORK_DIR,
+                "--bindmount", workDir.resolve(workspace) + ":" + JAIL_WORK_DIR,
+                "--bindmount", "/dev/null",
+                "--tmpfsmount", "/tmp",
+                "--env", "PATH=/usr/local/bin:/usr/bin:/bin",
+                "--env", "HOME=/tmp",
+                "--use_cgroupv2",
+                "--cgroupv2_mount", slot.cgroup.toString(),
+                "--cgroup_mem_max", String.valueOf(slot.memoryMb * 1024L * 1024L),
+                "--cgroup_mem_swap_max", "0",
+                "--cgroup_pids_max", String.valueOf(pidsLimit),
+                "--rlimit_cpu", String.valueOf(cpuLimitS),
+                "--rlimit_as", "inf",
+                "--rlimit_fsize", String.valueOf(fileSizeMb),
+                "--rlimit_nofile", "256",
+                "--time_limit", String.valueOf(timeLimitS),
+                "--seccomp_string", SECCOMP_POLICY));
+        for (String mount : mounts) {
+            args.add("--bindmount_ro");
+            args.add(mount);
+        }
+        args.add("--");
+        args.addAll(command);
+        return args;
+    }
+
+    // Kills whatever is left in the slot, then removes the cgroups nsjail could not clean up
+    private void kill(NativeSlot slot) {
+        try {
+            Files.writeString(slot.cgroup.resolve("cgroup.kill"), "1");
+        } catch (IOException e) {
+            logger.warn("Could not kill processes in sandbox {}", slot.id, e);
+        }
+        try (Stream<Path> children = Files.list(slot.cgroup)) {
+            children.filter(Files::isDirectory).forEach(child -> {
+                try {
+                    Files.delete(child);
+                } catch (IOException e) {
+                    // Still exiting; removed on a later release
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not clean up sandbox {}", slot.id, e);
+        }
+    }
+
+    private static void enableControllers(Path cgroup, boolean cpuset) throws IOException {
+        Files.writeString(cgroup.resolve("cgroup.subtree_control"), "+cpu +memory +pids" + (cpuset ? " +cpuset" : ""));
+    }
+
+    @Getter
+    private static class NativeSlot implements SandboxSlot {
+        private final String id;
+        private final Path cgroup;
+        private String language;
+        private int memoryMb;
+        private int cpusetCore = CoreAllocator.UNPINNED;
+        private int heldCore = CoreAllocator.UNPINNED;
+
+        NativeSlot(String id, Path cgroup) {
+            this.id = id;
+            this.cgroup = cgroup;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+import lombok.Getter;
+
+/**
+ * A pre-started, network-less sandbox container owned by the {@link ContainerPool}.
+ */
+@Getter
+public class PooledContainer implements SandboxSlot {
+    private final String id;
+    private final String language;
+    private int uses;
+    private int memoryMb;
+    // Core the container's cpuset is set to, and the core it holds while leased
+    private int cpusetCore = CoreAllocator.UNPINNED;
+    private int heldCore = CoreAllocator.UNPINNED;
+
+    PooledContainer(String id, String language, int memoryMb) {
+        this.id = id;
+        this.language = language;
+        this.memoryMb = memoryMb;
+    }
+
+    void markUsed() {
+        uses++;
+    }
+
+    void setMemoryMb(int memoryMb) {
+        this.memoryMb = memoryMb;
+    }
+
+    void setCpusetCore(int cpusetCore) {
+        this.cpusetCore = cpusetCore;
+    }
+
+    void setHeldCore(int heldCore) {
+        this.heldCore = heldCore;
+    }
+}
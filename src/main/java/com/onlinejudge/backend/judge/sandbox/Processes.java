@@ -0,0 +1,41 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Waits for child processes through {@link Process#onExit()}. On JDK 21
+ * {@link Process#waitFor()} blocks in {@code Object.wait} and pins the carrier
+ * of a virtual thread; waiting on the exit future parks it instead.
+ */
+public final class Processes {
+
+    private Processes() {
+    }
+
+    /**
+     * @return the exit status
+     */
+    public static int awaitExit(Process proc) throws InterruptedException {
+        try {
+            return proc.onExit().get().exitValue();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return {@code true} if the process exited within the timeout
+     */
+    public static boolean awaitExit(Process proc, long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            proc.onExit().get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+import com.onlinejudge.backend.judge.Limits;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Isolated environment that compiles and runs submissions. Work happens in a
+ * workspace, a directory under {@link #getWorkDir()} named relative to it,
+ * and runs as the workspace's sandbox id (see {@link
+ * com.onlinejudge.backend.judge.WorkspaceManager#sandboxIdOf}), which can
+ * reach no other workspace.
+ * Only one command runs in a leased slot at a time, so the slot's cgroup
+ * accounts for exactly that command.
+ */
+public interface Sandbox {
+
+    Path getWorkDir();
+
+    /**
+     * Takes a slot for the language, waiting up to the lease timeout. The slot
+     * comes with the compile memory limit; call {@link #applyLimits} before
+     * running tests in it.
+     *
+     * @throws SandboxUnavailableException if none was free in time
+     */
+    SandboxSlot lease(String language) throws IOException, InterruptedException;
+
+    /**
+     * Takes a slot only if one is available right now, else returns {@code null}.
+     */
+    SandboxSlot tryLease(String language);
+
+    void applyLimits(SandboxSlot slot, int memoryMb) throws IOException, InterruptedException;
+
+    /**
+     * Cleans the slot up and makes it available again.
+     */
+    void release(SandboxSlot slot);
+
+    /**
+     * Runs a command in the workspace and returns its exit status; output is discarded.
+     */
+    int exec(SandboxSlot slot, String workspace, String... command) throws IOException, InterruptedException;
+
+    /**
+     * Starts the compiled program on {@code tests/<test>.in} of the workspace.
+     * Standard output is the program's output. The exit status is the
+     * program's, 128 + signal if it was killed, or 124 if it ran out of wall
+     * time. If available, GNU time statistics are left in {@code <test>.stat}.
+     */
+    default Process run(SandboxSlot slot, String workspace, String language, String filename, int test,
+                        Limits limits) throws IOException {
+        return run(slot, workspace, language, filename, test, limits, ProcessBuilder.Redirect.DISCARD);
+    }
+
+    /**
+     * Same as {@link #run(SandboxSlot, String, String, String, int, Limits)}
+     * with the program's standard error sent to {@code stderr}.
+     */
+    Process run(SandboxSlot slot, String workspace, String language, String filename, int test, Limits limits,
+                ProcessBuilder.Redirect stderr) throws IOException;
+
+    /**
+     * Stops a program started by {@link #run} together with everything it
+     * left running in the slot, so the next command in the slot is measured
+     * alone. Destroying the returned process may only stop a client of the
+     * sandbox, not the program.
+     */
+    void stop(SandboxSlot slot, Process proc);
+
+    /**
+     * @return how many slots of the language can be leased at once
+     */
+    int capacity(String language);
+
+    /**
+     * @return slots leased right now
+     */
+    int leasedSlots();
+
+    /**
+     * @return the cgroup v2 directory accounting for the slot, or {@code null} if unknown
+     */
+    Path cgroupOf(SandboxSlot slot);
+}
@@ -0,0 +1,11 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+/**
+ * A unit of isolation leased from a {@link Sandbox}.
+ */
+public interface SandboxSlot {
+
+    String getId();
+
+    String getLanguage();
+}
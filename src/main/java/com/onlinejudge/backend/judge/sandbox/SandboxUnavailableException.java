@@ -0,0 +1,13 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+/**
+ * No sandbox of the language could be leased within the lease timeout. The
+ * submission was not judged, so its job is queued again rather than failed.
+ */
+public class SandboxUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public SandboxUnavailableException(String language) {
+        super("No " + language + " sandbox available");
+    }
+}
@@ -0,0 +1,100 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A sandboxed process that is killed once it exceeds its wall-clock limit and
+ * then reports exit status 124, as {@code timeout} does in judge.sh.
+ */
+class WallClockProcess extends Process {
+    static final int TIMEOUT_STATUS = 124;
+
+    private final Process delegate;
+    private final ScheduledFuture<?> watchdog;
+    private volatile boolean timedOut;
+
+    /**
+     * @param kill stops the process and everything it started
+     */
+    WallClockProcess(Process delegate, long wallTimeMs, ScheduledExecutorService scheduler, Runnable kill) {
+        this.delegate = delegate;
+        this.watchdog = scheduler.schedule(() -> {
+            if (delegate.isAlive()) {
+                timedOut = true;
+                kill.run();
+                delegate.destroyForcibly();
+            }
+        }, wallTimeMs, TimeUnit.MILLISECONDS);
+        delegate.onExit().thenRun(() -> watchdog.cancel(false));
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return delegate.getOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return delegate.getInputStream();
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return delegate.getErrorStream();
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+        int status = delegate.waitFor();
+        return timedOut ? TIMEOUT_STATUS : status;
+    }
+
+    @Override
+    public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.waitFor(timeout, unit);
+    }
+
+    @Override
+    public int exitValue() {
+        int status = delegate.exitValue();
+        return timedOut ? TIMEOUT_STATUS : status;
+    }
+
+    @Override
+    public boolean isAlive() {
+        return delegate.isAlive();
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.cancel(false);
+        delegate.destroy();
+    }
+
+    @Override
+    public Process destroyForcibly() {
+        watchdog.cancel(false);
+        delegate.destroyForcibly();
+        return this;
+    }
+
+    @Override
+    public CompletableFuture<Process> onExit() {
+        return delegate.onExit().thenApply(p -> this);
+    }
+
+    @Override
+    public long pid() {
+        return delegate.pid();
+    }
+
+    @Override
+    public ProcessHandle toHandle() {
+        return delegate.toHandle();
+    }
+}
@@ -0,0 +1,13 @@
+package com.onlinejudge.backend.model;
+
+/**
+ * How a program's output is compared with the expected output.
+ */
+public enum CheckerMode {
+    // Character for character, ignoring CRLF line endings and trailing newlines
+    EXACT,
+    // Whitespace-separated tokens must match exactly
+    WHITESPACE,
+    // Like WHITESPACE, but numbers in decimal or scientific notation may differ by an absolute or relative epsilon
+    FLOAT
+}
@@ -0,0 +1,60 @@
+package com.onlinejudge.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A run of a user's code on their own input. Not a submission: it runs no
+ * tests, counts for nothing and the row is deleted shortly after it finished.
+ */
+@Entity
+@Table(name = "custom_runs", indexes = @Index(columnList = "createdAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    // Supplies the time and memory limits
+    @Column(nullable = false)
+    private Long problemId;
+
+    private String language;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String code;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String input;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private CustomRunStatus status;
+
+    // OK when the program exited normally, else why it did not
+    private String verdict;
+
+    @Column(columnDefinition = "TEXT")
+    private String stdout;
+
+    // The compiler's output on a compilation error
+    @Column(columnDefinition = "TEXT")
+    private String stderr;
+
+    private Long timeMs;
+    private Long memoryKb;
+    private Integer exitCode;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,6 @@
+package com.onlinejudge.backend.model;
+
+public enum CustomRunStatus {
+    QUEUED,
+    DONE
+}
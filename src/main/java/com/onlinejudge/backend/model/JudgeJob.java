@@ -0,0 +1,71 @@
+package com.onlinejudge.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+
+/**
+ * A submission or custom run waiting to be judged or being judged. Jobs are
+ * claimed by judge nodes with {@code FOR UPDATE SKIP LOCKED} and held under a
+ * lease the node keeps extending; a job whose lease runs out is queued again.
+ * The row is deleted once the verdict is stored. Each job belongs to a
+ * {@link JudgeLane}; within a lane jobs are served fairly between users,
+ * weighted by {@code weight}.
+ */
+@Entity
+@Table(name = "judge_jobs", indexes = {
+        @Index(columnList = "lane, status, id"),
+        @Index(columnList = "status, leaseExpiresAt"),
+        @Index(columnList = "rejudgeId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JudgeJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Exactly one of submissionId and runId is set
+    @Column(unique = true)
+    private Long submissionId;
+
+    @Column(unique = true)
+    private Long runId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    @ColumnDefault("'LIVE'")
+    private JudgeLane lane;
+
+    // Of the submission or run; a node only claims jobs of languages it has a sandbox free for.
+    // Null for jobs queued before it was recorded, which any node claims
+    private String language;
+
+    // Null for rejudges, which are served in order
+    private Long userId;
+
+    // Share of the lane the user gets relative to others
+    @ColumnDefault("1")
+    private int weight;
+
+    // Set for jobs of the REJUDGE lane
+    private Long rejudgeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private JudgeJobStatus status;
+
+    // Claims so far, including the current one
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private String leaseOwner;
+    private Instant leaseExpiresAt;
+}
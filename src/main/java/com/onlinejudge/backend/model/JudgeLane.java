@@ -0,0 +1,11 @@
+package com.onlinejudge.backend.model;
+
+/**
+ * Lanes of the judge queue, in the order judge nodes serve them: custom and
+ * sample-only runs, live submissions, then bulk rejudges.
+ */
+public enum JudgeLane {
+    RUN,
+    LIVE,
+    REJUDGE
+}
@@ -37,10 +37,22 @@ public class Problem {
     @CollectionTable(name = "sample_testcases", joinColumns = @JoinColumn(name = "problem_id"))
     private List<TestCase> sampleTestcases;
 
-    @ElementCollection
-    @CollectionTable(name = "system_testcases", joinColumns = @JoinColumn(name = "problem_id"))
+    // Only accepted when creating a problem; stored as TestData in the test blob store
+    @Transient
     private List<TestCase> systemTestcases;
 
     private double time;  // seconds
     private int memory;   // MB
+
+    // Output allowed per test in MB; null uses the judge default
+    private Integer outputLimit;
+
+    // Sandboxes used to run system tests in parallel; null uses the judge default
+    private Integer parallelism;
+
+    // Output comparison; null means EXACT, epsilons default to 1e-6 for FLOAT
+    @Enumerated(EnumType.STRING)
+    private CheckerMode checker;
+    private Double absoluteEpsilon;
+    private Double relativeEpsilon;
 }
\ No newline at end of file
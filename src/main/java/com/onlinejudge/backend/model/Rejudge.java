@@ -0,0 +1,43 @@
+package com.onlinejudge.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * A bulk rejudge of a problem's submissions or of a chosen set of them. New
+ * verdicts are collected in {@link RejudgeItem}s and only written to the
+ * submissions, together with the problem counters, once all are judged.
+ */
+@Entity
+@Table(name = "rejudges")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Rejudge {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Null when specific submissions were rejudged
+    private Long problemId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private RejudgeStatus status;
+
+    private String requestedBy;
+
+    // Submissions to rejudge and how many of them have a new verdict so far
+    private int total;
+    private int judged;
+    // Submissions whose verdict changed; known once finished
+    private int changed;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+    private Instant finishedAt;
+}
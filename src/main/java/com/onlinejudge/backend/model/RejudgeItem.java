@@ -0,0 +1,49 @@
+package com.onlinejudge.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * One submission of a rejudge and, once judged, its new verdict. Submissions
+ * with the same language and source hash are judged once and share the result.
+ */
+@Entity
+@Table(name = "rejudge_items",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"rejudge_id", "submission_id"}),
+        indexes = @Index(columnList = "rejudge_id, status, language, source_hash"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RejudgeItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rejudge_id", nullable = false)
+    private Long rejudgeId;
+
+    @Column(name = "submission_id", nullable = false)
+    private Long submissionId;
+
+    private String language;
+
+    @Column(name = "source_hash", length = 64)
+    private String sourceHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private RejudgeItemStatus status;
+
+    private String oldVerdict;
+    private String verdict;
+    private Long maxTimeMs;
+    private Long maxMemoryKb;
+
+    @Convert(converter = TestResultListConverter.class)
+    @Column(columnDefinition = "TEXT")
+    private List<TestResult> testResults;
+}
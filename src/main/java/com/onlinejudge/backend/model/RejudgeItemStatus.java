@@ -0,0 +1,7 @@
+package com.onlinejudge.backend.model;
+
+public enum RejudgeItemStatus {
+    PENDING,
+    QUEUED,
+    DONE
+}
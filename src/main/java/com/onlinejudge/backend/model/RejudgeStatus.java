@@ -0,0 +1,7 @@
+package com.onlinejudge.backend.model;
+
+public enum RejudgeStatus {
+    RUNNING,
+    FINISHED,
+    CANCELLED
+}
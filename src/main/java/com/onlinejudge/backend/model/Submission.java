@@ -7,6 +7,7 @@ import org.hibernate.annotations.OnDeleteAction;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 
 @Entity
 @Table(name = "submissions")
@@ -30,6 +31,14 @@ public class Submission {
 
     private String date;
 
+    // Largest CPU time and peak memory over the tests that ran
+    private Long maxTimeMs;
+    private Long maxMemoryKb;
+
+    @Convert(converter = TestResultListConverter.class)
+    @Column(columnDefinition = "TEXT")
+    private List<TestResult> testResults;
+
     @ManyToOne
     @JoinColumn(name = "user_id")
     private User user;
@@ -0,0 +1,35 @@
+package com.onlinejudge.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Metadata of one system test. The input and output themselves live in the
+ * test blob store under their SHA-256 and are only ever read as streams.
+ */
+@Entity
+@Table(name = "test_data", uniqueConstraints = @UniqueConstraint(columnNames = {"problem_id", "ordinal"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TestData {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "problem_id", nullable = false)
+    private Long problemId;
+
+    // 1-based position among the problem's system tests
+    private int ordinal;
+
+    @Column(length = 64, nullable = false)
+    private String inputHash;
+    private long inputSize;
+
+    @Column(length = 64, nullable = false)
+    private String outputHash;
+    private long outputSize;
+}
@@ -0,0 +1,22 @@
+package com.onlinejudge.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Execution metrics of one test of a submission. Stored on the submission in
+ * compact text form by {@link TestResultListConverter}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestResult {
+    private int test;          // position in judging order, samples first
+    private String verdict;
+    private long cpuTimeMs;
+    private long wallTimeMs;
+    private long memoryKb;     // peak RSS
+    private Integer exitCode;  // null if the judge stopped the program
+    private Integer signal;    // 0 if the program was not killed by a signal, null if the judge stopped it
+}
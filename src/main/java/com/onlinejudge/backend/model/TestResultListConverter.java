@@ -0,0 +1,99 @@
+package com.onlinejudge.backend.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores per-test results as one short line per test,
+ * {@code test,verdict,cpuMs,wallMs,memoryKb,exitCode,signal}, instead of a
+ * row per test. In the verdict, {@code %}, commas and line breaks are
+ * percent-encoded; a null verdict, exit code or signal is an empty field.
+ */
+@Converter
+public class TestResultListConverter implements AttributeConverter<List<TestResult>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(List<TestResult> results) {
+        if (results == null || results.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (TestResult r : results) {
+            sb.append(r.getTest()).append(',')
+                    .append(escape(r.getVerdict())).append(',')
+                    .append(r.getCpuTimeMs()).append(',')
+                    .append(r.getWallTimeMs()).append(',')
+                    .append(r.getMemoryKb()).append(',')
+                    .append(orEmpty(r.getExitCode())).append(',')
+                    .append(orEmpty(r.getSignal())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public List<TestResult> convertToEntityAttribute(String column) {
+        List<TestResult> results = new ArrayList<>();
+        if (column == null || column.isBlank()) {
+            return results;
+        }
+        for (String line : column.split("\n")) {
+            // -1 keeps trailing empty fields
+            String[] f = line.split(",", -1);
+            if (f.length < 7) {
+                continue;
+            }
+            results.add(new TestResult(Integer.parseInt(f[0]), unescape(f[1]),
+                    Long.parseLong(f[2]), Long.parseLong(f[3]), Long.parseLong(f[4]),
+                    parseOrNull(f[5]), parseOrNull(f[6])));
+        }
+        return results;
+    }
+
+    private static String escape(String verdict) {
+        if (verdict == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(verdict.length());
+        for (char c : verdict.toCharArray()) {
+            switch (c) {
+                case '%' -> sb.append("%25");
+                case ',' -> sb.append("%2C");
+                case '\n' -> sb.append("%0A");
+                case '\r' -> sb.append("%0D");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String field) {
+        if (field.isEmpty()) {
+            return null;
+        }
+        if (field.indexOf('%') < 0) {
+            return field;
+        }
+        StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '%' && i + 2 < field.length()) {
+                sb.append((char) Integer.parseInt(field.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String orEmpty(Integer value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static Integer parseOrNull(String field) {
+        return field.isEmpty() ? null : Integer.valueOf(field);
+    }
+}
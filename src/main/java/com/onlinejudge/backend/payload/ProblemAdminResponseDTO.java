@@ -1,5 +1,6 @@
 package com.onlinejudge.backend.payload;
 
+import com.onlinejudge.backend.model.CheckerMode;
 import com.onlinejudge.backend.model.TestCase;
 import lombok.*;
 
@@ -21,7 +22,12 @@ public class ProblemAdminResponseDTO {
     private int countAC;
     private int countTotal;
     private List<TestCase> sampleTestcases;
-    private List<TestCase> systemTestcases;
+    private List<TestDataDTO> systemTests;
     private double time;
     private int memory;
+    private Integer outputLimit;
+    private Integer parallelism;
+    private CheckerMode checker;
+    private Double absoluteEpsilon;
+    private Double relativeEpsilon;
 }
@@ -23,4 +23,5 @@ public class ProblemResponseDTO {
     private List<TestCase> sampleTestcases;
     private double time;
     private int memory;
+    private Integer outputLimit;
 }
@@ -0,0 +1,15 @@
+package com.onlinejudge.backend.payload;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestDataDTO {
+    private int ordinal;
+    private long inputSize;
+    private long outputSize;
+    private String inputHash;
+    private String outputHash;
+}
@@ -0,0 +1,11 @@
+package com.onlinejudge.backend.payload.request;
+
+import lombok.Data;
+
+@Data
+public class CustomRunRequest {
+    private Long problemId;
+    private String language;
+    private String code;
+    private String input;
+}
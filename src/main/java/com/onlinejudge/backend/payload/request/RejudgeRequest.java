@@ -0,0 +1,12 @@
+package com.onlinejudge.backend.payload.request;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Either a problem, to rejudge all its submissions, or specific submissions
+@Data
+public class RejudgeRequest {
+    private Long problemId;
+    private List<Long> submissionIds;
+}
@@ -0,0 +1,25 @@
+package com.onlinejudge.backend.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class CustomRunResponseDTO {
+    private Long id;
+    private Long problemId;
+    private String language;
+    private String status;
+    private String verdict;
+    private String stdout;
+    private String stderr;
+    private Long timeMs;
+    private Long memoryKb;
+    private Integer exitCode;
+    private Instant createdAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,23 @@
+package com.onlinejudge.backend.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class RejudgeResponseDTO {
+    private Long id;
+    private Long problemId;
+    private String status;
+    private String requestedBy;
+    private int total;
+    private int judged;
+    private int changed;
+    private double progress;   // percent of submissions judged
+    private Instant createdAt;
+    private Instant finishedAt;
+}
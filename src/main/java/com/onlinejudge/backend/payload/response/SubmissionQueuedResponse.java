@@ -0,0 +1,13 @@
+package com.onlinejudge.backend.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class SubmissionQueuedResponse {
+    private Long submissionId;
+    private String verdict;
+}
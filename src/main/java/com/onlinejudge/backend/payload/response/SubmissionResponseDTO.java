@@ -16,4 +16,6 @@ public class SubmissionResponseDTO {
     private String code;
     private String username;
     private Long problemId;
+    private Long maxTimeMs;
+    private Long maxMemoryKb;
 }
@@ -0,0 +1,16 @@
+package com.onlinejudge.backend.repository;
+
+import com.onlinejudge.backend.model.CustomRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface CustomRunRepository extends JpaRepository<CustomRun, Long> {
+
+    @Modifying
+    @Query("DELETE FROM CustomRun r WHERE r.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,81 @@
+package com.onlinejudge.backend.repository;
+
+import com.onlinejudge.backend.model.JudgeJob;
+import com.onlinejudge.backend.model.JudgeJobStatus;
+import com.onlinejudge.backend.model.JudgeLane;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface JudgeJobRepository extends JpaRepository<JudgeJob, Long> {
+
+    long countByStatus(JudgeJobStatus status);
+
+    long countByStatusAndLane(JudgeJobStatus status, JudgeLane lane);
+
+    long countByRejudgeId(Long rejudgeId);
+
+    long countByLane(JudgeLane lane);
+
+    @Query("SELECT min(j.createdAt) FROM JudgeJob j WHERE j.lane = :lane AND j.status = :queued")
+    Instant findOldestQueued(@Param("lane") JudgeLane lane, @Param("queued") JudgeJobStatus queued);
+
+    /**
+     * Weighted fair queuing within a lane: a user's n-th job, counting those
+     * already running, is served at n / weight, so a burst from one user is
+     * interleaved with everybody else's jobs. Only jobs of the given
+     * languages are returned, and those of no recorded language. Rows locked
+     * by another node's claim are skipped rather than waited for.
+     */
+    @Query(value = "SELECT j.* FROM judge_jobs j JOIN ("
+            + "SELECT id, status, row_number() OVER (PARTITION BY user_id ORDER BY id) / CAST(weight AS float) AS tag "
+            + "FROM judge_jobs WHERE lane = :lane) r ON r.id = j.id "
+            + "WHERE r.status = 'QUEUED' AND (j.language IS NULL OR j.language IN (:languages)) "
+            + "ORDER BY r.tag, j.id LIMIT :limit FOR UPDATE OF j SKIP LOCKED",
+            nativeQuery = true)
+    List<JudgeJob> lockQueued(@Param("lane") String lane, @Param("languages") Collection<String> languages,
+                              @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM judge_jobs WHERE status = 'RUNNING' AND lease_expires_at < :now "
+            + "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<JudgeJob> lockExpired(@Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE JudgeJob j SET j.leaseExpiresAt = :until "
+            + "WHERE j.leaseOwner = :owner AND j.status = :running AND j.id IN :ids")
+    int extendLeases(@Param("owner") String owner, @Param("ids") Collection<Long> ids,
+                     @Param("until") Instant until, @Param("running") JudgeJobStatus running);
+
+    @Modifying
+    @Query("UPDATE JudgeJob j SET j.status = :queued, j.leaseOwner = null, j.leaseExpiresAt = null "
+            + "WHERE j.leaseOwner = :owner AND j.status = :running")
+    int requeueOwnedBy(@Param("owner") String owner,
+                       @Param("queued") JudgeJobStatus queued, @Param("running") JudgeJobStatus running);
+
+    // Not judged, so the claim does not count as an attempt
+    @Modifying
+    @Query("UPDATE JudgeJob j SET j.status = :queued, j.leaseOwner = null, j.leaseExpiresAt = null, "
+            + "j.attempts = j.attempts - 1 WHERE j.id = :id AND j.leaseOwner = :owner")
+    int requeueOwned(@Param("id") Long id, @Param("owner") String owner, @Param("queued") JudgeJobStatus queued);
+
+    @Modifying
+    @Query("DELETE FROM JudgeJob j WHERE j.id = :id AND j.leaseOwner = :owner")
+    int deleteOwned(@Param("id") Long id, @Param("owner") String owner);
+
+    @Modifying
+    @Query("DELETE FROM JudgeJob j WHERE j.rejudgeId = :rejudgeId AND j.status = :queued")
+    int deleteQueuedOfRejudge(@Param("rejudgeId") Long rejudgeId, @Param("queued") JudgeJobStatus queued);
+
+    // Submissions left pending without a job, e.g. accepted just before a crash
+    @Modifying
+    @Query(value = "INSERT INTO judge_jobs (submission_id, lane, language, user_id, weight, status, attempts, created_at) "
+            + "SELECT s.id, 'LIVE', s.language, s.user_id, 1, 'QUEUED', 0, now() FROM submissions s "
+            + "WHERE s.verdict = 'Pending' AND NOT EXISTS (SELECT 1 FROM judge_jobs j WHERE j.submission_id = s.id) "
+            + "ON CONFLICT (submission_id) DO NOTHING", nativeQuery = true)
+    int enqueueOrphanedPending();
+}
@@ -2,8 +2,11 @@ package com.onlinejudge.backend.repository;
 
 import com.onlinejudge.backend.model.Problem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ProblemRepository extends JpaRepository<Problem, Long> {
     boolean existsByName(String name);
@@ -15,4 +18,8 @@ public interface ProblemRepository extends JpaRepository<Problem, Long> {
 
     List<Problem> findAllByOrderByCountACDesc();
 
+    // Serializes changes to the problem's system tests
+    @Query(value = "SELECT id FROM problems WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
 }
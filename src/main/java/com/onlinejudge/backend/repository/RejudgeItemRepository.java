@@ -0,0 +1,72 @@
+package com.onlinejudge.backend.repository;
+
+import com.onlinejudge.backend.model.RejudgeItem;
+import com.onlinejudge.backend.model.RejudgeItemStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface RejudgeItemRepository extends JpaRepository<RejudgeItem, Long> {
+
+    long countByRejudgeIdAndStatus(Long rejudgeId, RejudgeItemStatus status);
+
+    RejudgeItem findByRejudgeIdAndSubmissionId(Long rejudgeId, Long submissionId);
+
+    // Pending submissions are left out, they are about to be judged anyway
+    @Modifying
+    @Query(value = "INSERT INTO rejudge_items (rejudge_id, submission_id, language, source_hash, old_verdict, status) "
+            + "SELECT :rejudgeId, s.id, s.language, md5(s.code), s.verdict, 'PENDING' FROM submissions s "
+            + "WHERE s.problem_id = :problemId AND s.verdict <> 'Pending'", nativeQuery = true)
+    int addProblem(@Param("rejudgeId") Long rejudgeId, @Param("problemId") Long problemId);
+
+    @Modifying
+    @Query(value = "INSERT INTO rejudge_items (rejudge_id, submission_id, language, source_hash, old_verdict, status) "
+            + "SELECT :rejudgeId, s.id, s.language, md5(s.code), s.verdict, 'PENDING' FROM submissions s "
+            + "WHERE s.id IN (:ids) AND s.verdict <> 'Pending'", nativeQuery = true)
+    int addSubmissions(@Param("rejudgeId") Long rejudgeId, @Param("ids") List<Long> submissionIds);
+
+    /**
+     * Pending items to judge next: one per distinct source that is not
+     * already being judged, so duplicates wait for its result.
+     */
+    @Query(value = "SELECT DISTINCT ON (i.language, i.source_hash) i.* FROM rejudge_items i "
+            + "WHERE i.rejudge_id = :rejudgeId AND i.status = 'PENDING' AND NOT EXISTS ("
+            + "SELECT 1 FROM rejudge_items q WHERE q.rejudge_id = i.rejudge_id AND q.status = 'QUEUED' "
+            + "AND q.language = i.language AND q.source_hash = i.source_hash) "
+            + "ORDER BY i.language, i.source_hash, i.id LIMIT :limit", nativeQuery = true)
+    List<RejudgeItem> findNextDistinct(@Param("rejudgeId") Long rejudgeId, @Param("limit") int limit);
+
+    // Gives the judged item's result to every waiting duplicate of it
+    @Modifying
+    @Query(value = "UPDATE rejudge_items d SET status = 'DONE', verdict = i.verdict, test_results = i.test_results, "
+            + "max_time_ms = i.max_time_ms, max_memory_kb = i.max_memory_kb FROM rejudge_items i "
+            + "WHERE i.id = :itemId AND d.rejudge_id = i.rejudge_id AND d.status = 'PENDING' "
+            + "AND d.language = i.language AND d.source_hash = i.source_hash", nativeQuery = true)
+    int copyToDuplicates(@Param("itemId") Long itemId);
+
+    // Queued items whose job is gone, e.g. deleted with its submission
+    @Modifying
+    @Query(value = "UPDATE rejudge_items i SET status = 'PENDING' WHERE i.rejudge_id = :rejudgeId "
+            + "AND i.status = 'QUEUED' AND NOT EXISTS (SELECT 1 FROM judge_jobs j WHERE j.submission_id = i.submission_id)",
+            nativeQuery = true)
+    int requeueLost(@Param("rejudgeId") Long rejudgeId);
+
+    // Failed judgings keep the old verdict
+    @Modifying
+    @Query(value = "UPDATE submissions s SET verdict = i.verdict, test_results = i.test_results, "
+            + "max_time_ms = i.max_time_ms, max_memory_kb = i.max_memory_kb FROM rejudge_items i "
+            + "WHERE i.rejudge_id = :rejudgeId AND s.id = i.submission_id AND i.verdict <> 'Judging Failed'",
+            nativeQuery = true)
+    int applyVerdicts(@Param("rejudgeId") Long rejudgeId);
+
+    @Query(value = "SELECT count(*) FROM rejudge_items i WHERE i.rejudge_id = :rejudgeId "
+            + "AND i.verdict <> 'Judging Failed' AND i.verdict IS DISTINCT FROM i.old_verdict", nativeQuery = true)
+    int countChanged(@Param("rejudgeId") Long rejudgeId);
+
+    @Modifying
+    @Query("DELETE FROM RejudgeItem i WHERE i.rejudgeId = :rejudgeId")
+    int deleteByRejudge(@Param("rejudgeId") Long rejudgeId);
+}
@@ -0,0 +1,38 @@
+package com.onlinejudge.backend.repository;
+
+import com.onlinejudge.backend.model.Rejudge;
+import com.onlinejudge.backend.model.RejudgeStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface RejudgeRepository extends JpaRepository<Rejudge, Long> {
+
+    boolean existsByStatus(RejudgeStatus status);
+
+    List<Rejudge> findTop20ByOrderByIdDesc();
+
+    // One node at a time feeds a rejudge; the others skip it
+    @Query(value = "SELECT * FROM rejudges WHERE status = 'RUNNING' ORDER BY id FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Rejudge> lockRunning();
+
+    @Query(value = "SELECT * FROM rejudges WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Rejudge lockById(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Rejudge r SET r.judged = r.judged + :count WHERE r.id = :id")
+    int addJudged(@Param("id") Long id, @Param("count") int count);
+
+    // Counters over all submissions of the problems the rejudge touched
+    @Modifying
+    @Query(value = "UPDATE problems p SET "
+            + "count_ac = (SELECT count(*) FROM submissions s WHERE s.problem_id = p.id AND s.verdict = 'Accepted'), "
+            + "count_total = (SELECT count(*) FROM submissions s WHERE s.problem_id = p.id) "
+            + "WHERE p.id IN (SELECT DISTINCT s.problem_id FROM submissions s "
+            + "JOIN rejudge_items i ON i.submission_id = s.id WHERE i.rejudge_id = :id)", nativeQuery = true)
+    int recountProblems(@Param("id") Long id);
+}
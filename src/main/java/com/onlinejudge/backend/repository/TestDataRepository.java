@@ -0,0 +1,22 @@
+package com.onlinejudge.backend.repository;
+
+import com.onlinejudge.backend.model.TestData;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface TestDataRepository extends JpaRepository<TestData, Long> {
+
+    List<TestData> findByProblemIdOrderByOrdinal(Long problemId);
+
+    Optional<TestData> findByProblemIdAndOrdinal(Long problemId, int ordinal);
+
+    int countByProblemId(Long problemId);
+
+    boolean existsByInputHashOrOutputHash(String inputHash, String outputHash);
+
+    @Transactional
+    void deleteByProblemId(Long problemId);
+}
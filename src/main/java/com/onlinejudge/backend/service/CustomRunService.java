@@ -0,0 +1,135 @@
+package com.onlinejudge.backend.service;
+
+import com.onlinejudge.backend.exception.APIException;
+import com.onlinejudge.backend.exception.JudgeQueueFullException;
+import com.onlinejudge.backend.exception.ResourceNotFoundException;
+import com.onlinejudge.backend.judge.JudgeQueue;
+import com.onlinejudge.backend.judge.LanguageRegistry;
+import com.onlinejudge.backend.model.CustomRun;
+import com.onlinejudge.backend.model.CustomRunStatus;
+import com.onlinejudge.backend.model.User;
+import com.onlinejudge.backend.payload.request.CustomRunRequest;
+import com.onlinejudge.backend.payload.response.CustomRunResponseDTO;
+import com.onlinejudge.backend.repository.CustomRunRepository;
+import com.onlinejudge.backend.repository.ProblemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Runs of a user's code on their own input. A run is a short-lived
+ * {@code custom_runs} row rather than a submission: it carries the code and
+ * input to whichever node runs it and the output back, and is deleted once
+ * the client had time to fetch it.
+ */
+@Service
+public class CustomRunService {
+    private static final Logger logger = LoggerFactory.getLogger(CustomRunService.class);
+
+    private final CustomRunRepository customRunRepository;
+    private final ProblemRepository problemRepository;
+    private final JudgeQueue judgeQueue;
+    private final LanguageRegistry languages;
+    private final int maxInputBytes;
+    private final long ttlMs;
+
+    public CustomRunService(CustomRunRepository customRunRepository,
+                            ProblemRepository problemRepository,
+                            JudgeQueue judgeQueue,
+                            LanguageRegistry languages,
+                            @Value("${spring.app.judge.run.maxInputBytes}") int maxInputBytes,
+                            @Value("${spring.app.judge.run.ttlMs}") long ttlMs) {
+        this.customRunRepository = customRunRepository;
+        this.problemRepository = problemRepository;
+        this.judgeQueue = judgeQueue;
+        this.languages = languages;
+        this.maxInputBytes = maxInputBytes;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Stores the run and queues it in the run lane.
+     *
+     * @throws JudgeQueueFullException if too many runs are waiting
+     */
+    public CustomRun create(User user, CustomRunRequest request) {
+        if (request.getCode() == null || request.getCode().isBlank()) {
+            throw new APIException("Code must not be empty");
+        }
+        String input = request.getInput() != null ? request.getInput() : "";
+        if (input.getBytes(StandardCharsets.UTF_8).length > maxInputBytes) {
+            throw new APIException("Input is larger than " + maxInputBytes + " bytes");
+        }
+        languages.get(request.getLanguage());
+        if (request.getProblemId() == null || !problemRepository.existsById(request.getProblemId())) {
+            throw new ResourceNotFoundException("Problem", "id", request.getProblemId());
+        }
+
+        CustomRun run = customRunRepository.save(CustomRun.builder()
+                .userId(user.getId())
+                .problemId(request.getProblemId())
+                .language(request.getLanguage())
+                .code(request.getCode())
+                .input(input)
+                .status(CustomRunStatus.QUEUED)
+                .createdAt(Instant.now())
+                .build());
+        try {
+            judgeQueue.submitRun(run, user);
+        } catch (JudgeQueueFullException e) {
+            customRunRepository.delete(run);
+            throw e;
+        }
+        return run;
+    }
+
+    public CustomRun getRun(Long id) {
+        return customRunRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Run", "id", id));
+    }
+
+    /**
+     * Stores the result, unless the run was purged while it ran.
+     */
+    @Transactional
+    public void complete(CustomRun run) {
+        if (!customRunRepository.existsById(run.getId())) {
+            return;
+        }
+        run.setStatus(CustomRunStatus.DONE);
+        run.setFinishedAt(Instant.now());
+        customRunRepository.save(run);
+    }
+
+    @Scheduled(fixedDelayString = "${spring.app.judge.run.ttlMs}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = customRunRepository.deleteCreatedBefore(Instant.now().minusMillis(ttlMs));
+        if (deleted > 0) {
+            logger.debug("Deleted {} expired custom runs", deleted);
+        }
+    }
+
+    public CustomRunResponseDTO mapToDTO(CustomRun run) {
+        return new CustomRunResponseDTO(
+                run.getId(),
+                run.getProblemId(),
+                run.getLanguage(),
+                run.getStatus().name(),
+                run.getVerdict(),
+                run.getStdout(),
+                run.getStderr(),
+                run.getTimeMs(),
+                run.getMemoryKb(),
+                run.getExitCode(),
+                run.getCreatedAt(),
+                run.getFinishedAt()
+        );
+    }
+}
@@ -1,13 +1,17 @@
 package com.onlinejudge.backend.service;
 
 import com.onlinejudge.backend.model.Problem;
+import com.onlinejudge.backend.model.TestCase;
 import com.onlinejudge.backend.payload.ProblemAdminResponseDTO;
 import com.onlinejudge.backend.payload.ProblemResponseDTO;
 import com.onlinejudge.backend.repository.ProblemRepository;
 import com.onlinejudge.backend.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.util.List;
 
 @Service
@@ -15,12 +19,19 @@ import java.util.List;
 public class ProblemService {
 
     private final ProblemRepository problemRepository;
+    private final TestDataService testDataService;
 
-    public Problem createProblem(Problem problem) {
+    public Problem createProblem(Problem problem) throws IOException {
         if (problemRepository.existsByName(problem.getName())) {
             throw new IllegalArgumentException("Problem already exists with the same name");
         }
-        return problemRepository.save(problem);
+        List<TestCase> systemTestcases = problem.getSystemTestcases();
+        Problem saved = problemRepository.save(problem);
+        if (systemTestcases != null) {
+            testDataService.addTests(saved.getId(), systemTestcases);
+        }
+        saved.setSystemTestcases(null);
+        return saved;
     }
 
     public List<Problem> getAllProblems() {
@@ -33,9 +44,18 @@ public class ProblemService {
                 .orElseThrow(() -> new ResourceNotFoundException("Problem", "id", id));
     }
 
-    public void deleteProblem(Long id) {
+    // Loads the sample tests eagerly so judge workers can use them outside a session
+    @Transactional(readOnly = true)
+    public Problem getProblemForJudging(Long id) {
+        Problem problem = getProblemById(id);
+        Hibernate.initialize(problem.getSampleTestcases());
+        return problem;
+    }
+
+    public void deleteProblem(Long id) throws IOException {
         Problem problem = getProblemById(id);
-        problemRepository.delete(problem); // Test cases deleted via @ElementCollection
+        problemRepository.delete(problem); // Sample tests deleted via @ElementCollection
+        testDataService.deleteTests(id);
     }
 
     public List<Problem> getTop10ByAC() {
@@ -107,6 +127,7 @@ public class ProblemService {
                 .sampleTestcases(problem.getSampleTestcases())
                 .time(problem.getTime())
                 .memory(problem.getMemory())
+                .outputLimit(problem.getOutputLimit())
                 .build();
     }
     public ProblemAdminResponseDTO mapToAdminDTO(Problem problem) {
@@ -121,9 +142,16 @@ public class ProblemService {
                 .countAC(problem.getCountAC())
                 .countTotal(problem.getCountTotal())
                 .sampleTestcases(problem.getSampleTestcases())
-                .systemTestcases(problem.getSystemTestcases())
+                .systemTests(testDataService.getTests(problem.getId()).stream()
+                        .map(testDataService::mapToDTO)
+                        .toList())
                 .time(problem.getTime())
                 .memory(problem.getMemory())
+                .outputLimit(problem.getOutputLimit())
+                .parallelism(problem.getParallelism())
+                .checker(problem.getChecker())
+                .absoluteEpsilon(problem.getAbsoluteEpsilon())
+                .relativeEpsilon(problem.getRelativeEpsilon())
                 .build();
     }
 
@@ -0,0 +1,201 @@
+package com.onlinejudge.backend.service;
+
+import com.onlinejudge.backend.exception.APIException;
+import com.onlinejudge.backend.exception.ResourceNotFoundException;
+import com.onlinejudge.backend.judge.JudgeJobStore;
+import com.onlinejudge.backend.model.Rejudge;
+import com.onlinejudge.backend.model.RejudgeItem;
+import com.onlinejudge.backend.model.RejudgeItemStatus;
+import com.onlinejudge.backend.model.RejudgeStatus;
+import com.onlinejudge.backend.model.TestResult;
+import com.onlinejudge.backend.payload.response.RejudgeResponseDTO;
+import com.onlinejudge.backend.repository.ProblemRepository;
+import com.onlinejudge.backend.repository.RejudgeItemRepository;
+import com.onlinejudge.backend.repository.RejudgeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Bulk rejudges. A rejudge only ever has a small window of jobs in the judge
+ * queue, fed by whichever node gets to it first, and judge nodes give those
+ * jobs only a few of their workers and only when no live submission is
+ * waiting. Submissions with identical sources are judged once. New verdicts
+ * are collected per item and written to the submissions, together with the
+ * problem counters, in one transaction once every item is judged.
+ */
+@Service
+public class RejudgeService {
+    private static final Logger logger = LoggerFactory.getLogger(RejudgeService.class);
+    // Advisory lock key held while a rejudge is started, so two nodes cannot both find none running
+    private static final long START_LOCK = 0x72656a75646765L;
+
+    private final RejudgeRepository rejudgeRepository;
+    private final RejudgeItemRepository itemRepository;
+    private final ProblemRepository problemRepository;
+    private final JudgeJobStore jobStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final int window;
+
+    public RejudgeService(RejudgeRepository rejudgeRepository,
+                          RejudgeItemRepository itemRepository,
+                          ProblemRepository problemRepository,
+                          JudgeJobStore jobStore,
+                          JdbcTemplate jdbcTemplate,
+                          @Value("${spring.app.judge.rejudge.window}") int window) {
+        this.rejudgeRepository = rejudgeRepository;
+        this.itemRepository = itemRepository;
+        this.problemRepository = problemRepository;
+        this.jobStore = jobStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.window = window;
+    }
+
+    /**
+     * Starts rejudging every judged submission of the problem, or the given
+     * submissions when {@code problemId} is null.
+     */
+    @Transactional
+    public Rejudge start(String requestedBy, Long problemId, List<Long> submissionIds) {
+        if ((problemId == null) == (submissionIds == null || submissionIds.isEmpty())) {
+            throw new APIException("Give either a problem or a list of submissions to rejudge");
+        }
+        // Held until commit; the check below then sees any rejudge another request just started
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + START_LOCK + ")");
+        if (rejudgeRepository.existsByStatus(RejudgeStatus.RUNNING)) {
+            throw new APIException("Another rejudge is still running");
+        }
+        if (problemId != null && !problemRepository.existsById(problemId)) {
+            throw new ResourceNotFoundException("Problem", "id", problemId);
+        }
+
+        Rejudge rejudge = rejudgeRepository.save(Rejudge.builder()
+                .problemId(problemId)
+                .status(RejudgeStatus.RUNNING)
+                .requestedBy(requestedBy)
+                .createdAt(Instant.now())
+                .build());
+        int total = problemId != null
+                ? itemRepository.addProblem(rejudge.getId(), problemId)
+                : itemRepository.addSubmissions(rejudge.getId(), submissionIds);
+        rejudge.setTotal(total);
+        if (total == 0) {
+            rejudge.setStatus(RejudgeStatus.FINISHED);
+            rejudge.setFinishedAt(Instant.now());
+        }
+        logger.info("Rejudge {} of {} submissions started by {}", rejudge.getId(), total, requestedBy);
+        return rejudge;
+    }
+
+    public Rejudge getRejudge(Long id) {
+        return rejudgeRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Rejudge", "id", id));
+    }
+
+    public List<Rejudge> getRecentRejudges() {
+        return rejudgeRepository.findTop20ByOrderByIdDesc();
+    }
+
+    /**
+     * Stops a running rejudge and throws its results away; no submission is changed.
+     */
+    @Transactional
+    public Rejudge cancel(Long id) {
+        Rejudge rejudge = rejudgeRepository.lockById(id);
+        if (rejudge == null) {
+            throw new ResourceNotFoundException("Rejudge", "id", id);
+        }
+        if (rejudge.getStatus() != RejudgeStatus.RUNNING) {
+            throw new APIException("Rejudge " + id + " is not running");
+        }
+        // Jobs already running finish and find their item gone
+        jobStore.dropQueuedOfRejudge(id);
+        itemRepository.deleteByRejudge(id);
+        rejudge.setStatus(RejudgeStatus.CANCELLED);
+        rejudge.setFinishedAt(Instant.now());
+        logger.info("Rejudge {} cancelled after {} of {} submissions", id, rejudge.getJudged(), rejudge.getTotal());
+        return rejudge;
+    }
+
+    /**
+     * Keeps the new verdict of a submission, and of its duplicates, until the
+     * rejudge finishes. Called by the judge node that judged it.
+     */
+    @Transactional
+    public void record(Long rejudgeId, Long submissionId, String verdict, List<TestResult> testResults) {
+        RejudgeItem item = itemRepository.findByRejudgeIdAndSubmissionId(rejudgeId, submissionId);
+        if (item == null || item.getStatus() != RejudgeItemStatus.QUEUED) {
+            // Cancelled, or judged twice after a lost lease
+            return;
+        }
+        item.setStatus(RejudgeItemStatus.DONE);
+        item.setVerdict(verdict);
+        item.setTestResults(testResults);
+        if (!testResults.isEmpty()) {
+            item.setMaxTimeMs(testResults.stream().mapToLong(TestResult::getCpuTimeMs).max().getAsLong());
+            item.setMaxMemoryKb(testResults.stream().mapToLong(TestResult::getMemoryKb).max().getAsLong());
+        }
+        itemRepository.saveAndFlush(item);
+        int duplicates = itemRepository.copyToDuplicates(item.getId());
+        rejudgeRepository.addJudged(rejudgeId, 1 + duplicates);
+    }
+
+    /**
+     * Tops up each running rejudge's jobs in the judge queue to the window
+     * size and finishes rejudges with nothing left to judge.
+     */
+    @Scheduled(fixedDelayString = "${spring.app.judge.rejudge.feedMs}")
+    @Transactional
+    public void feed() {
+        for (Rejudge rejudge : rejudgeRepository.lockRunning()) {
+            Long id = rejudge.getId();
+            itemRepository.requeueLost(id);
+            long room = window - jobStore.countOfRejudge(id);
+            if (room > 0) {
+                for (RejudgeItem item : itemRepository.findNextDistinct(id, (int) room)) {
+                    item.setStatus(RejudgeItemStatus.QUEUED);
+                    jobStore.enqueueRejudge(item.getSubmissionId(), id);
+                }
+            }
+            if (itemRepository.countByRejudgeIdAndStatus(id, RejudgeItemStatus.PENDING) == 0
+                    && itemRepository.countByRejudgeIdAndStatus(id, RejudgeItemStatus.QUEUED) == 0) {
+                finish(rejudge);
+            }
+        }
+    }
+
+    private void finish(Rejudge rejudge) {
+        Long id = rejudge.getId();
+        int changed = itemRepository.countChanged(id);
+        itemRepository.applyVerdicts(id);
+        rejudgeRepository.recountProblems(id);
+        itemRepository.deleteByRejudge(id);
+        rejudge.setChanged(changed);
+        rejudge.setJudged(rejudge.getTotal());
+        rejudge.setStatus(RejudgeStatus.FINISHED);
+        rejudge.setFinishedAt(Instant.now());
+        logger.info("Rejudge {} finished, {} of {} verdicts changed", id, changed, rejudge.getTotal());
+    }
+
+    public RejudgeResponseDTO mapToDTO(Rejudge rejudge) {
+        return new RejudgeResponseDTO(
+                rejudge.getId(),
+                rejudge.getProblemId(),
+                rejudge.getStatus().name(),
+                rejudge.getRequestedBy(),
+                rejudge.getTotal(),
+                rejudge.getJudged(),
+                rejudge.getChanged(),
+                rejudge.getTotal() == 0 ? 100.0 : 100.0 * rejudge.getJudged() / rejudge.getTotal(),
+                rejudge.getCreatedAt(),
+                rejudge.getFinishedAt()
+        );
+    }
+}
@@ -3,6 +3,7 @@ package com.onlinejudge.backend.service;
 import com.onlinejudge.backend.exception.APIException;
 import com.onlinejudge.backend.model.Problem;
 import com.onlinejudge.backend.model.Submission;
+import com.onlinejudge.backend.model.TestResult;
 import com.onlinejudge.backend.model.User;
 import com.onlinejudge.backend.payload.request.SubmissionRequest;
 import com.onlinejudge.backend.payload.response.SubmissionResponseDTO;
@@ -49,6 +50,19 @@ public class SubmissionService {
         submissionRepository.save(submission);
     }
 
+    public void updateVerdict(Submission submission, String verdict, List<TestResult> testResults) {
+        submission.setTestResults(testResults);
+        if (!testResults.isEmpty()) {
+            submission.setMaxTimeMs(testResults.stream().mapToLong(TestResult::getCpuTimeMs).max().getAsLong());
+            submission.setMaxMemoryKb(testResults.stream().mapToLong(TestResult::getMemoryKb).max().getAsLong());
+        }
+        updateVerdict(submission, verdict);
+    }
+
+    public void deleteSubmission(Submission submission) {
+        submissionRepository.delete(submission);
+    }
+
     public List<Submission> getSubmissionsByUserId(Long userId) {
         return submissionRepository.findByUserIdOrderByDateDesc(userId);
     }
@@ -64,7 +78,9 @@ public class SubmissionService {
                 submission.getDate(),
                 submission.getCode(),
                 submission.getUser().getUsername(),
-                submission.getProblem().getId()
+                submission.getProblem().getId(),
+                submission.getMaxTimeMs(),
+                submission.getMaxMemoryKb()
         );
     }
     public Map<String, Integer> getActivityMapForUser(Long userId) {
@@ -0,0 +1,163 @@
+package com.onlinejudge.backend.service;
+
+import com.onlinejudge.backend.exception.ResourceNotFoundException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * File system store for test inputs and outputs, addressed by the SHA-256 of
+ * their content. Blobs are written and read as streams, so a test of any size
+ * never has to fit in the heap, and identical files are stored once.
+ * <p>
+ * The directory belongs to the API nodes, which store uploads. Judging nodes
+ * on other hosts set {@code spring.app.testData.url} to an API node and read
+ * blobs from it over HTTP, authenticated by the token both sides share.
+ */
+@Component
+public class TestBlobStore {
+    public static final String TOKEN_HEADER = "X-Judge-Token";
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path dir;
+    private final URI remote;
+    private final String token;
+    private final HttpClient httpClient;
+
+    public TestBlobStore(@Value("${spring.app.testData.dir}") String dir,
+                         @Value("${spring.app.testData.url}") String url,
+                         @Value("${spring.app.testData.token}") String token) throws IOException {
+        this.dir = Paths.get(dir);
+        this.token = token;
+        if (url.isBlank()) {
+            Files.createDirectories(this.dir);
+            this.remote = null;
+            this.httpClient = null;
+            return;
+        }
+        if (token.isBlank()) {
+            throw new IllegalStateException("spring.app.testData.url needs spring.app.testData.token");
+        }
+        this.remote = URI.create(url.endsWith("/") ? url : url + "/");
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * Whether {@code token} is the one this node expects from judging nodes.
+     */
+    public boolean acceptsToken(String token) {
+        return !this.token.isBlank() && token != null
+                && MessageDigest.isEqual(this.token.getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Blob {
+        private final String hash;
+        private final long size;
+    }
+
+    /**
+     * Copies the stream into the store. The caller closes the stream.
+     */
+    public Blob put(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = dir.resolve(UUID.randomUUID() + ".tmp");
+        long size;
+        try {
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                size = in.transferTo(out);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path path = pathFor(hash);
+            Files.createDirectories(path.getParent());
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return new Blob(hash, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public InputStream open(String hash) throws IOException {
+        if (remote != null) {
+            return fetch(hash);
+        }
+        try {
+            return Files.newInputStream(pathFor(hash));
+        } catch (NoSuchFileException e) {
+            throw new ResourceNotFoundException("Test data", "hash", hash);
+        }
+    }
+
+    public void delete(String hash) throws IOException {
+        Files.deleteIfExists(pathFor(hash));
+    }
+
+    private InputStream fetch(String hash) throws IOException {
+        if (!HASH.matcher(hash).matches()) {
+            throw new ResourceNotFoundException("Test data", "hash", hash);
+        }
+        HttpRequest request = HttpRequest.newBuilder(remote.resolve("internal/test-data/" + hash))
+                .header(TOKEN_HEADER, token)
+                .GET()
+                .build();
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted fetching test data " + hash);
+        }
+        if (response.statusCode() == 200) {
+            return response.body();
+        }
+        response.body().close();
+        if (response.statusCode() == 404) {
+            throw new ResourceNotFoundException("Test data", "hash", hash);
+        }
+        throw new IOException("Fetching test data " + hash + " from " + remote + " returned " + response.statusCode());
+    }
+
+    // Hashes come from requests too; anything else could name a path outside the store
+    private Path pathFor(String hash) {
+        if (!HASH.matcher(hash).matches()) {
+            throw new ResourceNotFoundException("Test data", "hash", hash);
+        }
+        return dir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
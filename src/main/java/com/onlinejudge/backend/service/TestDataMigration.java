@@ -0,0 +1,47 @@
+package com.onlinejudge.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves system tests left in the old {@code system_testcases} table into the
+ * test blob store on startup. Problems are migrated one per transaction, so
+ * an interrupted run simply continues on the next start. Only API nodes
+ * migrate, and several starting at once take turns on each problem's row.
+ */
+@Component
+@Profile("!worker")
+@RequiredArgsConstructor
+public class TestDataMigration {
+    private static final Logger logger = LoggerFactory.getLogger(TestDataMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TestDataService testDataService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        Integer tables = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_name = 'system_testcases'", Integer.class);
+        if (tables == null || tables == 0) {
+            return;
+        }
+        List<Long> problemIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT problem_id FROM system_testcases", Long.class);
+        for (Long problemId : problemIds) {
+            try {
+                int migrated = testDataService.migrateLegacyTests(problemId);
+                logger.info("Moved {} system tests of problem {} to the test blob store", migrated, problemId);
+            } catch (RuntimeException e) {
+                logger.error("Could not migrate system tests of problem {}", problemId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.onlinejudge.backend.service;
+
+import com.onlinejudge.backend.exception.ResourceNotFoundException;
+import com.onlinejudge.backend.model.TestCase;
+import com.onlinejudge.backend.model.TestData;
+import com.onlinejudge.backend.payload.TestDataDTO;
+import com.onlinejudge.backend.repository.ProblemRepository;
+import com.onlinejudge.backend.repository.TestDataRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * System tests of a problem: metadata rows in {@code test_data}, content in
+ * the {@link TestBlobStore}.
+ */
+@Service
+@RequiredArgsConstructor
+public class TestDataService {
+
+    private final TestDataRepository testDataRepository;
+    private final ProblemRepository problemRepository;
+    private final TestBlobStore blobStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public List<TestData> getTests(Long problemId) {
+        return testDataRepository.findByProblemIdOrderByOrdinal(problemId);
+    }
+
+    public TestData getTest(Long problemId, int ordinal) {
+        return testDataRepository.findByProblemIdAndOrdinal(problemId, ordinal)
+                .orElseThrow(() -> new ResourceNotFoundException("Test", "ordinal", (long) ordinal));
+    }
+
+    public InputStream open(String hash) throws IOException {
+        return blobStore.open(hash);
+    }
+
+    /**
+     * Stores a new system test after the existing ones. The caller closes the streams.
+     */
+    public TestData addTest(Long problemId, InputStream input, InputStream output) throws IOException {
+        TestBlobStore.Blob in = blobStore.put(input);
+        TestBlobStore.Blob out = blobStore.put(output);
+        // The upload stays outside the transaction; the problem row is locked only while numbering the test
+        return transactionTemplate.execute(status -> {
+            problemRepository.lockById(problemId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Problem", "id", problemId));
+            return testDataRepository.save(TestData.builder()
+                    .problemId(problemId)
+                    .ordinal(testDataRepository.countByProblemId(problemId) + 1)
+                    .inputHash(in.getHash())
+                    .inputSize(in.getSize())
+                    .outputHash(out.getHash())
+                    .outputSize(out.getSize())
+                    .build());
+        });
+    }
+
+    public void addTests(Long problemId, List<TestCase> tests) throws IOException {
+        for (TestCase test : tests) {
+            addTest(problemId,
+                    new ByteArrayInputStream(test.getInput().getBytes(StandardCharsets.UTF_8)),
+                    new ByteArrayInputStream(test.getOutput().getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Removes all system tests of a problem, and their blobs unless another
+     * test still refers to the same content.
+     */
+    public void deleteTests(Long problemId) throws IOException {
+        Set<String> hashes = new LinkedHashSet<>();
+        for (TestData test : getTests(problemId)) {
+            hashes.add(test.getInputHash());
+            hashes.add(test.getOutputHash());
+        }
+        testDataRepository.deleteByProblemId(problemId);
+        for (String hash : hashes) {
+            if (!testDataRepository.existsByInputHashOrOutputHash(hash, hash)) {
+                blobStore.delete(hash);
+            }
+        }
+    }
+
+    /**
+     * Moves the tests of one problem from the legacy {@code system_testcases}
+     * collection table into the blob store, one row at a time.
+     */
+    @Transactional
+    public int migrateLegacyTests(Long problemId) {
+        // Every API node migrates on startup; the first to lock the problem moves its tests, the others find them moved
+        if (problemRepository.lockById(problemId).isEmpty() || testDataRepository.countByProblemId(problemId) > 0) {
+            return 0;
+        }
+        AtomicInteger migrated = new AtomicInteger();
+        jdbcTemplate.query("SELECT input, output FROM system_testcases WHERE problem_id = ?", rs -> {
+            try {
+                addTests(problemId, List.of(new TestCase(rs.getString("input"), rs.getString("output"))));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            migrated.incrementAndGet();
+        }, problemId);
+        jdbcTemplate.update("DELETE FROM system_testcases WHERE problem_id = ?", problemId);
+        return migrated.get();
+    }
+
+    public TestDataDTO mapToDTO(TestData test) {
+        return new TestDataDTO(test.getOrdinal(), test.getInputSize(), test.getOutputSize(),
+                test.getInputHash(), test.getOutputHash());
+    }
+}
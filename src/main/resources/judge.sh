@@ -1,69 +1,62 @@
 #!/bin/bash
 
-LANG=$1
-SRC=$2
-INPUT=$3
-EXPECTED=$4
-OUTPUT="output.txt"
+# Runs inside a pooled sandbox container (network-less, memory/cpu limited),
+# with the submission's workspace as the working directory, as the
+# workspace's unprivileged sandbox user. The staged tests are links into the
+# judge's test data cache, mounted read-only at the same path, and cannot be
+# changed from here.
+#
+# Usage:
+#   judge.sh compile <compile command>      -> compiles once, writes verdict.txt
+#   judge.sh run <run command> <test> <cpu_s> <wall_s> <file_kb>
+#                                            -> runs the compiled program on tests/<test>.in,
+#                                               streaming its output on stdout; exits with
+#                                               124 on wall-clock timeout or the program's
+#                                               exit status
+#
+# The commands come from the judge's language registry
+# (spring.app.judge.languages), so nothing here depends on the language.
+# The output is checked, and its size limited, by the judge while it is being
+# streamed. Memory and processes are limited by the container; the judge sets
+# memory per problem.
+
+MODE=$1
 VERDICT="verdict.txt"
-EXE="main"
+COMPILE_LOG="compile.txt"
 
-> "$VERDICT"
-> "$OUTPUT"
+if [ "$MODE" = "compile" ]; then
+  > "$VERDICT"
+  bash -c "$2" > "$COMPILE_LOG" 2>&1
+  compile_status=$?
 
-case $LANG in
-  cpp)
-    IMG="judge-cpp"
-    COMPILE="g++ $SRC -o $EXE"
-    RUN="./$EXE"
-    ;;
-  java)
-    IMG="judge-java"
-    COMPILE="javac $SRC"
-    RUN="java ${SRC%.java}"
-    ;;
-  python3)
-    IMG="judge-python"
-    COMPILE="true"  # No compile step needed
-    RUN="python3 $SRC"
-    ;;
-  *)
-    echo "Unsupported language" > "$VERDICT"
-    exit 1
-    ;;
-esac
+  if [ $compile_status -ne 0 ]; then
+    echo "Compilation Error" > "$VERDICT"
+    exit 0
+  fi
 
-# Compile
-compile_output=$(docker run --rm -v $(pwd):/app -w /app $IMG bash -c "$COMPILE" 2>&1)
-compile_status=$?
-
-if [ $compile_status -ne 0 ]; then
-  echo "Compilation Error" > "$VERDICT"
-  echo "$compile_output" >&2
-  exit 0
-fi
-
-# Run inside sandbox
-docker run --rm -v $(pwd):/app -w /app --network none --memory=256m --cpus=0.5 $IMG bash -c "timeout 2s $RUN < $INPUT > $OUTPUT"
-
-
-run_status=$?
-
-if [ $run_status -eq 124 ]; then
-  echo "Time Limit Exceeded" > "$VERDICT"
-  exit 0
-elif [ $run_status -ne 0 ]; then
-  echo "Runtime Error" > "$VERDICT"
-  exit 0
-fi
-
-# Normalize line endings
-dos2unix "$EXPECTED" "$OUTPUT" &>/dev/null
-
-# Compare output
-if ! diff -q "$EXPECTED" "$OUTPUT" > /dev/null; then
-  echo "Wrong Answer" > "$VERDICT"
+  echo "Compiled" > "$VERDICT"
   exit 0
 fi
 
-echo "Accepted" > "$VERDICT"
\ No newline at end of file
+# Run the artifact produced by the compile step on one test. RLIMIT_CPU is a
+# hard stop just above the CPU time limit and timeout a generous wall-clock
+# guard; the judge checks the exact limit against the consumed CPU time.
+# Files the program writes are capped at the output limit (RLIMIT_FSIZE).
+# GNU time records wall, user and system seconds and peak RSS (KB) in <test>.stat
+# next to this script, as the tests directory is read-only.
+RUN=$2
+TEST=$3
+CPU_LIMIT=$4
+WALL_LIMIT=$5
+FILE_LIMIT=$6
+
+ulimit -t "$CPU_LIMIT"
+ulimit -f "$FILE_LIMIT"
+/usr/bin/time -f "%e %U %S %M" -o "$TEST.stat" \
+  timeout "${WALL_LIMIT}s" bash -c "exec $RUN < tests/$TEST.in"
+status=$?
+
+# Whatever the program left in the background would be measured with the
+# next test in this container; kill everything this sandbox user still runs
+kill -9 -1 2>/dev/null
+exit $status
@@ -0,0 +1,38 @@
+package com.onlinejudge.backend;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Base of tests that need a real Postgres, for queries such as
+ * {@code FOR UPDATE SKIP LOCKED} that no embedded database runs. They point
+ * at the database in {@code JUDGE_TEST_DATABASE_URL} (with
+ * {@code JUDGE_TEST_DATABASE_USERNAME} and {@code JUDGE_TEST_DATABASE_PASSWORD})
+ * and are skipped when it is not set; subclasses repeat
+ * {@code @EnabledIfEnvironmentVariable(named = "JUDGE_TEST_DATABASE_URL", matches = ".+")}.
+ * The tables they use are emptied, so never point it at a database in use.
+ * <p>
+ * Tests run outside a test transaction: what they check is how separate
+ * transactions, often on several threads, see each other's commits.
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public abstract class PostgresIntegrationTest {
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("JUDGE_TEST_DATABASE_URL"));
+        registry.add("spring.datasource.username", () -> env("JUDGE_TEST_DATABASE_USERNAME", "postgres"));
+        registry.add("spring.datasource.password", () -> env("JUDGE_TEST_DATABASE_PASSWORD", ""));
+    }
+
+    private static String env(String name, String fallback) {
+        String value = System.getenv(name);
+        return value == null ? fallback : value;
+    }
+}
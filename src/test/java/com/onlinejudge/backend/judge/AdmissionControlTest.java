@@ -0,0 +1,136 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.exception.JudgeOverloadedException;
+import com.onlinejudge.backend.exception.RateLimitExceededException;
+import com.onlinejudge.backend.model.JudgeLane;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdmissionControlTest {
+
+    private static final int INITIAL_LIMIT = 10;
+    private static final int MIN_LIMIT = 4;
+    private static final int MAX_LIMIT = 12;
+    private static final long TARGET_WAIT_MS = 15_000;
+
+    private final JudgeJobStore jobStore = mock(JudgeJobStore.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Rate limits high enough to stay out of the way, except one custom run per second
+    private final AdmissionControl admission = new AdmissionControl(jobStore, meterRegistry,
+            INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT, TARGET_WAIT_MS, 6000, 1000, 60, 1);
+
+    @Test
+    void limitGrowsByOneWhileItHoldsSubmissionsBack() {
+        sample(9, Duration.ofSeconds(1));
+        admission.adjust();
+        assertThat(limit()).isEqualTo(11);
+
+        // 9 is no longer close to the limit of 11
+        admission.adjust();
+        assertThat(limit()).isEqualTo(11);
+    }
+
+    @Test
+    void limitStopsGrowingAtTheMaximum() {
+        sample(100, null);
+        for (int i = 0; i < 10; i++) {
+            admission.adjust();
+        }
+        assertThat(limit()).isEqualTo(MAX_LIMIT);
+    }
+
+    @Test
+    void limitShrinksByAQuarterWhenJobsWaitTooLong() {
+        sample(100, Duration.ofMillis(TARGET_WAIT_MS + 5_000));
+        admission.adjust();
+        assertThat(limit()).isEqualTo(7);
+        admission.adjust();
+        assertThat(limit()).isEqualTo(5);
+        admission.adjust();
+        assertThat(limit()).isEqualTo(MIN_LIMIT);
+        admission.adjust();
+        assertThat(limit()).isEqualTo(MIN_LIMIT);
+    }
+
+    @Test
+    void limitHoldsWhenTheQueueIsShortAndNotFull() {
+        sample(3, Duration.ofSeconds(1));
+        admission.adjust();
+        assertThat(limit()).isEqualTo(INITIAL_LIMIT);
+
+        sample(0, null);
+        admission.adjust();
+        assertThat(limit()).isEqualTo(INITIAL_LIMIT);
+    }
+
+    @Test
+    void limitHoldsWhenTheQueueCannotBeSampled() {
+        when(jobStore.countOutstanding(JudgeLane.LIVE)).thenThrow(new IllegalStateException("database down"));
+        admission.adjust();
+        assertThat(limit()).isEqualTo(INITIAL_LIMIT);
+    }
+
+    @Test
+    void submissionsAboveTheLimitAreTurnedAway() {
+        sample(5, null);
+        admission.adjust();
+        for (int i = 0; i < 5; i++) {
+            admission.admit((long) i);
+        }
+
+        assertThatThrownBy(() -> admission.admit(99L))
+                .isInstanceOfSatisfying(JudgeOverloadedException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(TARGET_WAIT_MS / 1000));
+        assertThat(meterRegistry.get("judge.admission.rejected").tag("reason", "overload").counter().count())
+                .isEqualTo(1);
+
+        // The next sample replaces the admissions counted since the last one
+        sample(4, null);
+        admission.adjust();
+        admission.admit(99L);
+    }
+
+    @Test
+    void overloadRejectionsCostNoRateLimitToken() {
+        AdmissionControl strict = new AdmissionControl(jobStore, new SimpleMeterRegistry(),
+                INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT, TARGET_WAIT_MS, 1, 1, 60, 1);
+        sample(100, null);
+        strict.adjust();
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> strict.admit(1L)).isInstanceOf(JudgeOverloadedException.class);
+        }
+
+        // Once the queue drains the user's single token is still there
+        sample(0, null);
+        strict.adjust();
+        strict.admit(1L);
+        assertThatThrownBy(() -> strict.admit(1L)).isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    void runsTooFastAreRateLimitedWithRetryAfter() {
+        admission.admitRun(1L);
+        assertThatThrownBy(() -> admission.admitRun(1L))
+                .isInstanceOfSatisfying(RateLimitExceededException.class,
+                        e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(1));
+        // Buckets are per user
+        admission.admitRun(2L);
+    }
+
+    private void sample(long outstanding, Duration oldestWait) {
+        when(jobStore.countOutstanding(JudgeLane.LIVE)).thenReturn(outstanding);
+        when(jobStore.oldestQueued(JudgeLane.LIVE)).thenReturn(oldestWait == null ? null : Instant.now().minus(oldestWait));
+    }
+
+    private int limit() {
+        return (int) meterRegistry.get("judge.admission.limit").gauge().value();
+    }
+}
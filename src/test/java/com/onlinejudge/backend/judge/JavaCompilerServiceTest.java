@@ -0,0 +1,101 @@
+package com.onlinejudge.backend.judge;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JavaCompilerServiceTest {
+
+    private static final long TIMEOUT_MS = 30_000;
+
+    @TempDir
+    private Path workspace;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JavaCompilerService compiler;
+
+    @BeforeEach
+    void startCompilers() throws IOException {
+        // Unconfined: tests run neither as root nor with a cgroup to spare
+        compiler = new JavaCompilerService(meterRegistry, 17, 1, TIMEOUT_MS, 128, 1024, -1, "", "", 100, 512);
+        compiler.warmUp();
+    }
+
+    @AfterEach
+    void stopCompilers() throws IOException {
+        compiler.shutdown();
+    }
+
+    @Test
+    void compilesIntoTheWorkspaceLikeJudgeSh() throws Exception {
+        write("public class Main { static class Inner { } public static void main(String[] a) { } }");
+
+        assertThat(compiler.compile(workspace, "Main.java")).isTrue();
+        assertThat(workspace.resolve("Main.class")).exists();
+        assertThat(workspace.resolve("Main$Inner.class")).exists();
+        assertThat(Files.readString(workspace.resolve(CompileCache.VERDICT_FILE))).isEqualTo("Compiled\n");
+        assertThat(Files.readString(workspace.resolve(CompileCache.COMPILE_LOG))).isEmpty();
+    }
+
+    @Test
+    void reportsCompileErrorsWithTheLog() throws Exception {
+        write("public class Main { int x = \"text\"; }");
+
+        assertThat(compiler.compile(workspace, "Main.java")).isTrue();
+        assertThat(Files.readString(workspace.resolve(CompileCache.VERDICT_FILE))).isEqualTo("Compilation Error\n");
+        assertThat(Files.readString(workspace.resolve(CompileCache.COMPILE_LOG)))
+                .contains("Main.java:1").contains("incompatible types");
+        assertThat(workspace.resolve("Main.class")).doesNotExist();
+    }
+
+    @Test
+    void compilerJvmIsReusedAcrossCompiles() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            write("public class Main { int v = " + i + "; }");
+            assertThat(compiler.compile(workspace, "Main.java")).isTrue();
+        }
+        assertThat(meterRegistry.get("judge.javac.compiles").tag("result", "compiled").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void leavesSourcesOverTheLimitToTheSandbox() throws Exception {
+        write("public class Main { }" + " ".repeat(2000));
+
+        assertThat(compiler.compile(workspace, "Main.java")).isFalse();
+        assertThat(workspace.resolve(CompileCache.VERDICT_FILE)).doesNotExist();
+    }
+
+    @Test
+    void leavesSourcesThatAreNotUtf8ToTheSandbox() throws Exception {
+        Files.write(workspace.resolve("Main.java"), new byte[]{'/', '/', (byte) 0xff, '\n'});
+
+        assertThat(compiler.compile(workspace, "Main.java")).isFalse();
+    }
+
+    @Test
+    void compilesNothingWhenTheCgroupCannotBeSetUp() throws Exception {
+        JavaCompilerService unconfinable = new JavaCompilerService(meterRegistry, 17, 1, TIMEOUT_MS, 128, 1024,
+                -1, workspace.resolve("no-such-cgroup-root/javac").toString(), "", 100, 512);
+        try {
+            unconfinable.warmUp();
+            write("public class Main { }");
+
+            assertThat(unconfinable.compile(workspace, "Main.java")).isFalse();
+            assertThat(workspace.resolve(CompileCache.VERDICT_FILE)).doesNotExist();
+        } finally {
+            unconfinable.shutdown();
+        }
+    }
+
+    private void write(String source) throws IOException {
+        Files.writeString(workspace.resolve("Main.java"), source);
+    }
+}
@@ -0,0 +1,229 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.PostgresIntegrationTest;
+import com.onlinejudge.backend.exception.JudgeQueueFullException;
+import com.onlinejudge.backend.model.JudgeJob;
+import com.onlinejudge.backend.model.JudgeJobStatus;
+import com.onlinejudge.backend.model.JudgeLane;
+import com.onlinejudge.backend.repository.JudgeJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Import(JudgeJobStore.class)
+@EnabledIfEnvironmentVariable(named = "JUDGE_TEST_DATABASE_URL", matches = ".+")
+class JudgeJobStoreTest extends PostgresIntegrationTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(1);
+    // Claimed with a lease that ran out a second ago, as if the node had died
+    private static final Duration EXPIRED = Duration.ofSeconds(-1);
+    private static final List<String> LANGUAGES = List.of("cpp", "java");
+
+    @Autowired
+    private JudgeJobStore jobStore;
+
+    @Autowired
+    private JudgeJobRepository judgeJobRepository;
+
+    @Value("${spring.app.judge.jobs.maxAttempts}")
+    private int maxAttempts;
+
+    @Value("#{${spring.app.judge.lanes.capacity}}")
+    private Map<String, Integer> laneCapacities;
+
+    @BeforeEach
+    void emptyQueue() {
+        judgeJobRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentClaimsNeverHandOutAJobTwice() throws Exception {
+        int jobs = 200;
+        int nodes = 8;
+        for (int i = 0; i < jobs; i++) {
+            enqueue(JudgeLane.LIVE, (long) (i % 10));
+        }
+
+        List<Callable<List<Long>>> workers = new ArrayList<>();
+        for (int n = 0; n < nodes; n++) {
+            String owner = "node-" + n;
+            workers.add(() -> {
+                List<Long> claimed = new ArrayList<>();
+                List<JudgeJob> batch;
+                while (!(batch = jobStore.claim(owner, JudgeLane.LIVE, LANGUAGES, 3, LEASE)).isEmpty()) {
+                    batch.forEach(job -> claimed.add(job.getId()));
+                }
+                return claimed;
+            });
+        }
+        List<Long> claimed = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        try {
+            for (Future<List<Long>> result : executor.invokeAll(workers)) {
+                claimed.addAll(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(claimed).hasSize(jobs).doesNotHaveDuplicates();
+        assertThat(judgeJobRepository.findAll())
+                .allSatisfy(job -> {
+                    assertThat(job.getStatus()).isEqualTo(JudgeJobStatus.RUNNING);
+                    assertThat(job.getAttempts()).isEqualTo(1);
+                    assertThat(job.getLeaseOwner()).startsWith("node-");
+                });
+    }
+
+    @Test
+    void concurrentEnqueuesNeverOverfillALane() throws Exception {
+        int capacity = laneCapacities.get(JudgeLane.RUN.name());
+        List<Callable<Boolean>> submitters = new ArrayList<>();
+        for (int i = 0; i < capacity + 50; i++) {
+            long userId = i;
+            submitters.add(() -> {
+                try {
+                    enqueue(JudgeLane.RUN, userId);
+                    return true;
+                } catch (JudgeQueueFullException e) {
+                    return false;
+                }
+            });
+        }
+        int accepted = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<Boolean> result : executor.invokeAll(submitters)) {
+                accepted += result.get() ? 1 : 0;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(accepted).isEqualTo(capacity);
+        assertThat(jobStore.countQueued(JudgeLane.RUN)).isEqualTo(capacity);
+    }
+
+    @Test
+    void claimsOnlyQueuedJobsOfTheLane() {
+        JudgeJob live = enqueue(JudgeLane.LIVE, 1L);
+        enqueue(JudgeLane.RUN, 1L);
+
+        assertThat(jobStore.claim("node-a", JudgeLane.LIVE, LANGUAGES, 10, LEASE))
+                .extracting(JudgeJob::getId).containsExactly(live.getId());
+        assertThat(jobStore.claim("node-b", JudgeLane.LIVE, LANGUAGES, 10, LEASE)).isEmpty();
+    }
+
+    @Test
+    void claimsOnlyJobsOfTheGivenLanguages() {
+        JudgeJob cpp = enqueue(JudgeLane.LIVE, 1L, "cpp");
+        JudgeJob java = enqueue(JudgeLane.LIVE, 2L, "java");
+        JudgeJob unknown = enqueue(JudgeLane.LIVE, 3L, null);
+
+        assertThat(jobStore.claim("node-a", JudgeLane.LIVE, List.of("java"), 10, LEASE))
+                .extracting(JudgeJob::getId).containsExactly(java.getId(), unknown.getId());
+        assertThat(jobStore.claim("node-a", JudgeLane.LIVE, List.of("python"), 10, LEASE)).isEmpty();
+        assertThat(jobStore.claim("node-a", JudgeLane.LIVE, LANGUAGES, 10, LEASE))
+                .extracting(JudgeJob::getId).containsExactly(cpp.getId());
+    }
+
+    @Test
+    void requeuedJobIsClaimedAgainWithoutSpendingAnAttempt() {
+        JudgeJob job = enqueue(JudgeLane.LIVE, 1L);
+        JudgeJob claimed = jobStore.claim("node-a", JudgeLane.LIVE, LANGUAGES, 1, LEASE).get(0);
+
+        jobStore.requeue(claimed, "node-b");
+        assertThat(judgeJobRepository.findById(job.getId()).orElseThrow().getStatus())
+                .isEqualTo(JudgeJobStatus.RUNNING);
+        jobStore.requeue(claimed, "node-a");
+        JudgeJob requeued = judgeJobRepository.findById(job.getId()).orElseThrow();
+        assertThat(requeued.getStatus()).isEqualTo(JudgeJobStatus.QUEUED);
+        assertThat(requeued.getLeaseOwner()).isNull();
+        assertThat(requeued.getAttempts()).isZero();
+
+        assertThat(jobStore.claim("node-b", JudgeLane.LIVE, LANGUAGES, 1, LEASE))
+                .extracting(JudgeJob::getAttempts).containsExactly(1);
+    }
+
+    @Test
+    void expiredLeaseIsQueuedAgain() {
+        JudgeJob job = enqueue(JudgeLane.LIVE, 1L);
+        jobStore.claim("node-a", JudgeLane.LIVE, LANGUAGES, 1, EXPIRED);
+
+        assertThat(jobStore.reapExpired()).isEmpty();
+        JudgeJob requeued = judgeJobRepository.findById(job.getId()).orElseThrow();
+        assertThat(requeued.getStatus()).isEqualTo(JudgeJobStatus.QUEUED);
+        assertThat(requeued.getLeaseOwner()).isNull();
+        assertThat(requeued.getLeaseExpiresAt()).isNull();
+
+        List<JudgeJob> reclaimed = jobStore.claim("node-b", JudgeLane.LIVE, LANGUAGES, 1, LEASE);
+        assertThat(reclaimed).extracting(JudgeJob::getId).containsExactly(job.getId());
+        assertThat(reclaimed.get(0).getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    void liveLeaseIsLeftAlone() {
+        JudgeJob job = enqueue(JudgeLane.LIVE, 1L);
+        jobStore.claim("node-a", JudgeLane.LIVE, LANGUAGES, 1, LEASE);
+
+        assertThat(jobStore.reapExpired()).isEmpty();
+        assertThat(judgeJobRepository.findById(job.getId()).orElseThrow().getLeaseOwner()).isEqualTo("node-a");
+    }
+
+    @Test
+    void jobIsDroppedAfterMaxAttempts() {
+        JudgeJob job = enqueue(JudgeLane.LIVE, 1L);
+
+        for (int attempt = 1; attempt < maxAttempts; attempt++) {
+            assertThat(jobStore.claim("node-" + attempt, JudgeLane.LIVE, LANGUAGES, 1, EXPIRED)).hasSize(1);
+            assertThat(jobStore.reapExpired()).isEmpty();
+        }
+        assertThat(jobStore.claim("node-last", JudgeLane.LIVE, LANGUAGES, 1, EXPIRED)).hasSize(1);
+
+        assertThat(jobStore.reapExpired()).extracting(JudgeJob::getId).containsExactly(job.getId());
+        assertThat(judgeJobRepository.findById(job.getId())).isEmpty();
+        assertThat(jobStore.claim("node-a", JudgeLane.LIVE, LANGUAGES, 1, LEASE)).isEmpty();
+    }
+
+    @Test
+    void releaseHandsBackOnlyTheNodesOwnJobs() {
+        enqueue(JudgeLane.LIVE, 1L);
+        enqueue(JudgeLane.LIVE, 2L);
+        jobStore.claim("node-a", JudgeLane.LIVE, LANGUAGES, 1, LEASE);
+        jobStore.claim("node-b", JudgeLane.LIVE, LANGUAGES, 1, LEASE);
+
+        assertThat(jobStore.release("node-a")).isEqualTo(1);
+        Set<JudgeJobStatus> statuses = new HashSet<>();
+        judgeJobRepository.findAll().forEach(job -> statuses.add(job.getStatus()));
+        assertThat(statuses).containsExactlyInAnyOrder(JudgeJobStatus.QUEUED, JudgeJobStatus.RUNNING);
+    }
+
+    private JudgeJob enqueue(JudgeLane lane, Long userId) {
+        return enqueue(lane, userId, "cpp");
+    }
+
+    private JudgeJob enqueue(JudgeLane lane, Long userId, String language) {
+        return jobStore.enqueue(JudgeJob.builder()
+                .lane(lane)
+                .language(language)
+                .userId(userId)
+                .weight(1)
+                .build());
+    }
+}
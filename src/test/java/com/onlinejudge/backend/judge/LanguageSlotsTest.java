@@ -0,0 +1,63 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.sandbox.Sandbox;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LanguageSlotsTest {
+
+    private final LanguageSlots languageSlots = new LanguageSlots(sandbox(Map.of("cpp", 2, "python", 1)),
+            registry("cpp", "python"));
+
+    @Test
+    void languageClosesOnceItsSandboxesAreTaken() {
+        assertThat(languageSlots.tryAcquire("cpp")).isTrue();
+        assertThat(languageSlots.tryAcquire("cpp")).isTrue();
+
+        assertThat(languageSlots.tryAcquire("cpp")).isFalse();
+        assertThat(languageSlots.open()).containsExactly("python");
+    }
+
+    @Test
+    void releasedPermitReopensTheLanguage() {
+        languageSlots.tryAcquire("python");
+        assertThat(languageSlots.open()).containsExactly("cpp");
+
+        languageSlots.release("python");
+        assertThat(languageSlots.open()).containsExactly("cpp", "python");
+        assertThat(languageSlots.tryAcquire("python")).isTrue();
+    }
+
+    @Test
+    void unknownLanguagesAreNotHeldBack() {
+        assertThat(languageSlots.tryAcquire(null)).isTrue();
+        assertThat(languageSlots.tryAcquire("brainfuck")).isTrue();
+        languageSlots.release("brainfuck");
+
+        assertThat(languageSlots.open()).containsExactly("cpp", "python");
+    }
+
+    private static Sandbox sandbox(Map<String, Integer> capacities) {
+        Sandbox sandbox = mock(Sandbox.class);
+        capacities.forEach((language, capacity) -> when(sandbox.capacity(language)).thenReturn(capacity));
+        return sandbox;
+    }
+
+    private static LanguageRegistry registry(String... ids) {
+        Map<String, Language> languages = new LinkedHashMap<>();
+        for (String id : ids) {
+            Language language = new Language();
+            language.setId(id);
+            languages.put(id, language);
+        }
+        LanguageRegistry registry = new LanguageRegistry();
+        registry.setLanguages(languages);
+        return registry;
+    }
+}
@@ -0,0 +1,76 @@
+package com.onlinejudge.backend.judge;
+
+import com.onlinejudge.backend.judge.sandbox.CgroupMeter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RunUsageTest {
+
+    private static final Limits LIMITS = new Limits(1000, 64, 1024);
+    private static final CgroupMeter.Usage NO_CGROUP = new CgroupMeter.Usage(-1, -1, false);
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void prefersCgroupAccountingOverGnuTime() throws IOException {
+        Path stat = write("0.50 0.30 0.10 2048\n");
+
+        RunUsage run = RunUsage.of(new CgroupMeter.Usage(420, 4096, false), stat, 999);
+        assertThat(run.getCpuTimeMs()).isEqualTo(420);
+        assertThat(run.getMemoryKb()).isEqualTo(4096);
+        assertThat(run.getWallTimeMs()).isEqualTo(500);
+    }
+
+    @Test
+    void fallsBackToGnuTimeAndThenToTheJudgesClock() throws IOException {
+        RunUsage fromStat = RunUsage.of(NO_CGROUP, write("0.50 0.30 0.10 2048\n"), 999);
+        assertThat(fromStat.getCpuTimeMs()).isEqualTo(400);
+        assertThat(fromStat.getMemoryKb()).isEqualTo(2048);
+        assertThat(fromStat.getWallTimeMs()).isEqualTo(500);
+
+        RunUsage stopped = RunUsage.of(NO_CGROUP, null, 999);
+        assertThat(stopped.getCpuTimeMs()).isEqualTo(-1);
+        assertThat(stopped.getMemoryKb()).isEqualTo(-1);
+        assertThat(stopped.getWallTimeMs()).isEqualTo(999);
+        assertThat(stopped.getSignal()).isZero();
+    }
+
+    @Test
+    void readsTheSignalGnuTimeReported() throws IOException {
+        RunUsage run = RunUsage.of(NO_CGROUP, write("Command terminated by signal 11\n0.01 0.00 0.00 900\n"), 0);
+        assertThat(run.getSignal()).isEqualTo(11);
+        assertThat(RunUsage.readStats(write("garbage"))).isNull();
+        assertThat(RunUsage.readStats(dir.resolve("missing.stat"))).isNull();
+    }
+
+    @Test
+    void limitVerdictsApplyInOrder() {
+        RunUsage slowAndFat = RunUsage.of(new CgroupMeter.Usage(1500, 70_000, true), null, 0);
+        assertThat(slowAndFat.limitVerdict(true, 1, LIMITS)).isEqualTo("Output Limit Exceeded");
+        assertThat(slowAndFat.limitVerdict(false, 0, LIMITS)).isEqualTo("Time Limit Exceeded");
+
+        RunUsage fat = RunUsage.of(new CgroupMeter.Usage(10, 70_000, false), null, 0);
+        assertThat(fat.limitVerdict(false, 124, LIMITS)).isEqualTo("Time Limit Exceeded");
+        assertThat(fat.limitVerdict(false, 137, LIMITS)).isEqualTo("Memory Limit Exceeded");
+        // Peak memory alone is no verdict when the program exited cleanly
+        assertThat(fat.limitVerdict(false, 0, LIMITS)).isNull();
+
+        RunUsage oom = RunUsage.of(new CgroupMeter.Usage(10, 100, true), null, 0);
+        assertThat(oom.limitVerdict(false, 0, LIMITS)).isEqualTo("Memory Limit Exceeded");
+
+        RunUsage small = RunUsage.of(new CgroupMeter.Usage(10, 100, false), null, 0);
+        assertThat(small.limitVerdict(false, 1, LIMITS)).isEqualTo("Runtime Error");
+        assertThat(small.limitVerdict(false, 0, LIMITS)).isNull();
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(Files.createTempFile(dir, "test", ".stat"), content);
+    }
+}
@@ -0,0 +1,96 @@
+package com.onlinejudge.backend.judge;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestDataCacheTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void workspaceLinksToTheCachedFile() throws IOException {
+        TestDataCache cache = cache(1 << 20);
+        Path workspace = Files.createDirectory(tempDir.resolve("workspace"));
+
+        try (TestDataCache.Links links = cache.links()) {
+            links.link("1 2\n", workspace.resolve("1.in"));
+            links.link("1 2\n", workspace.resolve("2.in"));
+        }
+
+        assertThat(workspace.resolve("1.in")).isSymbolicLink().hasContent("1 2");
+        assertThat(Files.readSymbolicLink(workspace.resolve("1.in")))
+                .isEqualTo(Files.readSymbolicLink(workspace.resolve("2.in")))
+                .startsWith(cache.getDir());
+        assertThat(cache.getTotalBytes()).isEqualTo(4);
+    }
+
+    @Test
+    void contentNotMatchingItsHashIsRejected() throws Exception {
+        TestDataCache cache = cache(1 << 20);
+        Path target = tempDir.resolve("1.out");
+
+        try (TestDataCache.Links links = cache.links()) {
+            assertThatThrownBy(() -> links.link(sha256("3\n"), () -> stream("4\n"), target))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining(sha256("4\n"));
+        }
+
+        assertThat(target).doesNotExist();
+        assertThat(cache.getTotalBytes()).isZero();
+        try (TestDataCache.Links links = cache.links()) {
+            links.link(sha256("3\n"), () -> stream("3\n"), target);
+        }
+        assertThat(target).hasContent("3");
+    }
+
+    @Test
+    void linkedFilesAreNotEvictedUntilReleased() throws IOException {
+        // Room for one file of four bytes
+        TestDataCache cache = cache(4);
+        Path first = tempDir.resolve("1.in");
+        Path second = tempDir.resolve("2.in");
+        Path third = tempDir.resolve("3.in");
+
+        try (TestDataCache.Links links = cache.links()) {
+            links.link("aaa\n", first);
+            links.link("bbb\n", second);
+            assertThat(first).hasContent("aaa");
+            assertThat(second).hasContent("bbb");
+        }
+        try (TestDataCache.Links links = cache.links()) {
+            links.link("ccc\n", third);
+        }
+
+        assertThat(Files.exists(first)).isFalse();
+        assertThat(Files.exists(second)).isFalse();
+        assertThat(third).hasContent("ccc");
+        assertThat(cache.getTotalBytes()).isEqualTo(4);
+    }
+
+    private TestDataCache cache(long maxBytes) throws IOException {
+        return new TestDataCache(new SimpleMeterRegistry(), tempDir.resolve("cache").toString(), maxBytes);
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(String content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.onlinejudge.backend.judge;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private static final double PER_SECOND = 0.5;
+    private static final int BURST = 2;
+
+    private final AtomicLong now = new AtomicLong(1_000L);
+    private final TokenBucket bucket = new TokenBucket(BURST, now::get);
+
+    @Test
+    void startsFullAndWaitsForTheNextTokenOnceEmpty() {
+        assertThat(bucket.take(PER_SECOND, BURST)).isZero();
+        assertThat(bucket.take(PER_SECOND, BURST)).isZero();
+        assertThat(bucket.take(PER_SECOND, BURST)).isEqualTo(TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void waitShrinksAsTheBucketRefills() {
+        drain();
+        advanceMillis(500);
+        assertThat(bucket.take(PER_SECOND, BURST)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1500));
+        advanceMillis(1500);
+        assertThat(bucket.take(PER_SECOND, BURST)).isZero();
+        assertThat(bucket.take(PER_SECOND, BURST)).isEqualTo(TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void refusedRequestsTakeNothing() {
+        drain();
+        advanceMillis(1000);
+        bucket.take(PER_SECOND, BURST);
+        bucket.take(PER_SECOND, BURST);
+        advanceMillis(1000);
+        assertThat(bucket.take(PER_SECOND, BURST)).isZero();
+    }
+
+    @Test
+    void refillStopsAtTheBurst() {
+        drain();
+        advanceMillis(TimeUnit.HOURS.toMillis(1));
+        assertThat(bucket.isFull(PER_SECOND, BURST)).isTrue();
+        drain();
+        assertThat(bucket.take(PER_SECOND, BURST)).isPositive();
+        assertThat(bucket.isFull(PER_SECOND, BURST)).isFalse();
+    }
+
+    @Test
+    void retryAfterRoundsUpToWholeSeconds() {
+        assertThat(TokenBucket.retryAfterSeconds(1)).isEqualTo(1);
+        assertThat(TokenBucket.retryAfterSeconds(TimeUnit.MILLISECONDS.toNanos(999))).isEqualTo(1);
+        assertThat(TokenBucket.retryAfterSeconds(TimeUnit.SECONDS.toNanos(1))).isEqualTo(1);
+        assertThat(TokenBucket.retryAfterSeconds(TimeUnit.SECONDS.toNanos(1) + 1)).isEqualTo(2);
+        assertThat(TokenBucket.retryAfterSeconds(TimeUnit.MILLISECONDS.toNanos(9500))).isEqualTo(10);
+    }
+
+    @Test
+    void retryAfterIsAtLeastOneSecond() {
+        assertThat(TokenBucket.retryAfterSeconds(0)).isEqualTo(1);
+    }
+
+    @Test
+    void retryAfterCoversTheWaitOfAnEmptyBucket() {
+        drain();
+        advanceMillis(300);
+        long waitNanos = bucket.take(PER_SECOND, BURST);
+        assertThat(TokenBucket.retryAfterSeconds(waitNanos)).isEqualTo(2);
+        // Retrying after that many seconds succeeds
+        advanceMillis(TimeUnit.SECONDS.toMillis(TokenBucket.retryAfterSeconds(waitNanos)));
+        assertThat(bucket.take(PER_SECOND, BURST)).isZero();
+    }
+
+    private void drain() {
+        while (bucket.take(PER_SECOND, BURST) == 0) {
+        }
+    }
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
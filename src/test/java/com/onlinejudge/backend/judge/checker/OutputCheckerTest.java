@@ -0,0 +1,170 @@
+package com.onlinejudge.backend.judge.checker;
+
+import com.onlinejudge.backend.model.CheckerMode;
+import com.onlinejudge.backend.model.Problem;
+import org.junit.jupiter.api.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutputCheckerTest {
+
+    private static final double EPSILON = 1e-6;
+
+    @Test
+    void exactMatchesIdenticalOutput() throws IOException {
+        assertThat(matches(CheckerMode.EXACT, "1 2\n3\n", "1 2\n3\n")).isTrue();
+        assertThat(matches(CheckerMode.EXACT, "", "")).isTrue();
+    }
+
+    @Test
+    void exactIgnoresCrlfAndTrailingNewlines() throws IOException {
+        assertThat(matches(CheckerMode.EXACT, "a\nb\n", "a\r\nb\r\n")).isTrue();
+        assertThat(matches(CheckerMode.EXACT, "a\nb", "a\nb\n\n\n")).isTrue();
+        assertThat(matches(CheckerMode.EXACT, "a\nb\n\n", "a\nb")).isTrue();
+        assertThat(matches(CheckerMode.EXACT, "\n", "")).isTrue();
+    }
+
+    @Test
+    void exactRejectsOtherWhitespaceDifferences() throws IOException {
+        assertThat(matches(CheckerMode.EXACT, "a\nb", "a\n\nb")).isFalse();
+        assertThat(matches(CheckerMode.EXACT, "a\nb", "a \nb")).isFalse();
+        assertThat(matches(CheckerMode.EXACT, "a\nb", "a\rb")).isFalse();
+        assertThat(matches(CheckerMode.EXACT, "a\nb", "a\nb ")).isFalse();
+        assertThat(matches(CheckerMode.EXACT, "a\nb", "a")).isFalse();
+    }
+
+    @Test
+    void whitespaceComparesTokens() throws IOException {
+        assertThat(matches(CheckerMode.WHITESPACE, "1 2\n3\n", "1\n2   3")).isTrue();
+        assertThat(matches(CheckerMode.WHITESPACE, "1 2", "\r\n\t1 2\r\n\r\n")).isTrue();
+        assertThat(matches(CheckerMode.WHITESPACE, "1 2", "1 2 3")).isFalse();
+        assertThat(matches(CheckerMode.WHITESPACE, "1 2 3", "1 2")).isFalse();
+        assertThat(matches(CheckerMode.WHITESPACE, "1.0", "1")).isFalse();
+        assertThat(matches(CheckerMode.WHITESPACE, "abc", "abd")).isFalse();
+    }
+
+    @Test
+    void floatAllowsAbsoluteEpsilon() throws IOException {
+        OutputChecker checker = new OutputChecker(CheckerMode.FLOAT, 1e-3, 0);
+        assertThat(matches(checker, "0.5", "0.5009")).isTrue();
+        assertThat(matches(checker, "0.5", "0.4991")).isTrue();
+        assertThat(matches(checker, "0.5", "0.502")).isFalse();
+        assertThat(matches(checker, "1000000", "1000000.01")).isFalse();
+    }
+
+    @Test
+    void floatAllowsRelativeEpsilon() throws IOException {
+        OutputChecker checker = new OutputChecker(CheckerMode.FLOAT, 0, 1e-6);
+        assertThat(matches(checker, "1e9", "1000000900")).isTrue();
+        assertThat(matches(checker, "-1e9", "-999999100")).isTrue();
+        assertThat(matches(checker, "1e9", "1000002000")).isFalse();
+        assertThat(matches(checker, "0", "1e-300")).isFalse();
+    }
+
+    @Test
+    void floatComparesDecimalAndScientificNotation() throws IOException {
+        assertThat(matches(CheckerMode.FLOAT, "0.25 3", "2.5e-1 3.0000000001")).isTrue();
+        assertThat(matches(CheckerMode.FLOAT, "10", "+1E1")).isTrue();
+        assertThat(matches(CheckerMode.FLOAT, "0.5", ".5")).isTrue();
+        assertThat(matches(CheckerMode.FLOAT, "5", "5.")).isTrue();
+        assertThat(matches(CheckerMode.FLOAT, "1 2", "1")).isFalse();
+    }
+
+    @Test
+    void floatComparesOtherTokensAsText() throws IOException {
+        assertThat(matches(CheckerMode.FLOAT, "YES 1.5", "YES 1.5000001")).isTrue();
+        assertThat(matches(CheckerMode.FLOAT, "YES", "yes")).isFalse();
+        assertThat(matches(CheckerMode.FLOAT, "1", "1d")).isFalse();
+        assertThat(matches(CheckerMode.FLOAT, "2", "2f")).isFalse();
+        assertThat(matches(CheckerMode.FLOAT, "8", "0x1p3")).isFalse();
+        assertThat(matches(CheckerMode.FLOAT, "1", "1e")).isFalse();
+        assertThat(matches(CheckerMode.FLOAT, "1", "NaN")).isFalse();
+        assertThat(matches(CheckerMode.FLOAT, "1e308", "Infinity")).isFalse();
+    }
+
+    @Test
+    void floatHandlesNanAndInfinity() throws IOException {
+        assertThat(matches(CheckerMode.FLOAT, "NaN", "NaN")).isTrue();
+        assertThat(matches(CheckerMode.FLOAT, "Infinity -Infinity", "Infinity -Infinity")).isTrue();
+        assertThat(matches(CheckerMode.FLOAT, "Infinity", "-Infinity")).isFalse();
+        assertThat(matches(CheckerMode.FLOAT, "1e400", "2e400")).isTrue();
+        assertThat(matches(CheckerMode.FLOAT, "1e400", "-1e400")).isFalse();
+        assertThat(matches(CheckerMode.FLOAT, "1e400", "1e308")).isFalse();
+    }
+
+    @Test
+    void floatComparesOverlongNumbersAsText() throws IOException {
+        String longNumber = "1." + "0".repeat(100);
+        assertThat(matches(CheckerMode.FLOAT, longNumber, longNumber)).isTrue();
+        assertThat(matches(CheckerMode.FLOAT, longNumber, "1")).isFalse();
+        assertThat(matches(CheckerMode.FLOAT, "1", longNumber)).isFalse();
+    }
+
+    @Test
+    void tokensLongerThanAChunkAreComparedAcrossChunks() throws IOException {
+        String token = "x".repeat(20_000);
+        String differing = token.substring(0, 10_000) + "y" + token.substring(10_001);
+        for (CheckerMode mode : new CheckerMode[]{CheckerMode.WHITESPACE, CheckerMode.FLOAT}) {
+            assertThat(matches(mode, token + " end", token + "\nend")).isTrue();
+            assertThat(matches(mode, token, differing)).isFalse();
+            assertThat(matches(mode, token, token + "x")).isFalse();
+            assertThat(matches(mode, token + "x", token)).isFalse();
+        }
+    }
+
+    @Test
+    void tokensEndingAtAChunkBoundaryMatch() throws IOException {
+        String exactChunk = "z".repeat(8192);
+        assertThat(matches(CheckerMode.WHITESPACE, exactChunk + " 1", exactChunk + " 1")).isTrue();
+        assertThat(matches(CheckerMode.WHITESPACE, exactChunk + " 1", exactChunk + "z 1")).isFalse();
+        String numberLength = "7".repeat(64);
+        assertThat(matches(CheckerMode.FLOAT, numberLength, numberLength)).isTrue();
+        assertThat(matches(CheckerMode.FLOAT, numberLength, numberLength + "7")).isFalse();
+    }
+
+    @Test
+    void outputArrivingOneCharacterAtATimeIsCheckedTheSame() throws IOException {
+        OutputChecker exact = new OutputChecker(CheckerMode.EXACT, EPSILON, EPSILON);
+        assertThat(exact.matches(new StringReader("a\nb\n"), new TrickleReader("a\r\nb\r\n\r\n"))).isTrue();
+        assertThat(exact.matches(new TrickleReader("a\nb"), new TrickleReader("a\rb"))).isFalse();
+
+        OutputChecker floats = new OutputChecker(CheckerMode.FLOAT, EPSILON, EPSILON);
+        String expected = "3.14159 " + "w".repeat(9000) + " 2";
+        assertThat(floats.matches(new StringReader(expected), new TrickleReader("3.1415901\n" + "w".repeat(9000) + "\n2")))
+                .isTrue();
+        assertThat(floats.matches(new StringReader(expected), new TrickleReader("3.1415901 " + "w".repeat(8999) + " 2")))
+                .isFalse();
+    }
+
+    @Test
+    void forProblemDefaultsToExact() throws IOException {
+        OutputChecker checker = OutputChecker.forProblem(new Problem());
+        assertThat(checker.matches(new StringReader("1.0"), new StringReader("1.0000001"))).isFalse();
+        assertThat(checker.matches(new StringReader("1.0\n"), new StringReader("1.0"))).isTrue();
+    }
+
+    private static boolean matches(CheckerMode mode, String expected, String actual) throws IOException {
+        return matches(new OutputChecker(mode, EPSILON, EPSILON), expected, actual);
+    }
+
+    private static boolean matches(OutputChecker checker, String expected, String actual) throws IOException {
+        return checker.matches(new StringReader(expected), new StringReader(actual));
+    }
+
+    // Hands out one character per read, as a slowly streaming program would
+    private static class TrickleReader extends FilterReader {
+
+        TrickleReader(String content) {
+            super(new StringReader(content));
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return super.read(buffer, offset, Math.min(length, 1));
+        }
+    }
+}
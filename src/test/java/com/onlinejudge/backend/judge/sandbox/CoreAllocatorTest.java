@@ -0,0 +1,55 @@
+package com.onlinejudge.backend.judge.sandbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoreAllocatorTest {
+
+    @Test
+    void parsesRangesAndSingleCores() {
+        assertThat(CoreAllocator.parse("2-5,8")).containsExactly(2, 3, 4, 5, 8);
+        assertThat(CoreAllocator.parse("0")).containsExactly(0);
+        assertThat(CoreAllocator.parse("3-3,10-11")).containsExactly(3, 10, 11);
+    }
+
+    @Test
+    void ignoresWhitespaceAndEmptyParts() {
+        assertThat(CoreAllocator.parse(" 2 - 5 , 8 ")).containsExactly(2, 3, 4, 5, 8);
+        assertThat(CoreAllocator.parse("1,,2,")).containsExactly(1, 2);
+        assertThat(CoreAllocator.parse("")).isEmpty();
+        assertThat(CoreAllocator.parse("  ")).isEmpty();
+    }
+
+    @Test
+    void listsEachCoreOnceInFirstSeenOrder() {
+        assertThat(CoreAllocator.parse("4,2-5,3")).containsExactly(4, 2, 3, 5);
+        assertThat(CoreAllocator.parse("1,1,1")).containsExactly(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"5-2", "-1", "1-", "-", "a", "1-b", "2-5-7", "1.5", "0-8192", "0-2147483647", "99999999999"})
+    void rejectsInvalidRanges(String cpuset) {
+        assertThatThrownBy(() -> CoreAllocator.parse(cpuset))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Invalid cpuset range");
+    }
+
+    @Test
+    void allocatorWithoutCpusetPinsNothing() {
+        CoreAllocator allocator = new CoreAllocator(new SimpleMeterRegistry(), "");
+        assertThat(allocator.isEnabled()).isFalse();
+        assertThat(allocator.size()).isZero();
+    }
+
+    @Test
+    void allocatorSharesOutTheParsedCores() {
+        CoreAllocator allocator = new CoreAllocator(new SimpleMeterRegistry(), "2-3, 6");
+        assertThat(allocator.isEnabled()).isTrue();
+        assertThat(allocator.size()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,73 @@
+package com.onlinejudge.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestResultListConverterTest {
+
+    private final TestResultListConverter converter = new TestResultListConverter();
+
+    @Test
+    void roundTripsResults() {
+        List<TestResult> results = List.of(
+                new TestResult(1, "Accepted", 12, 30, 2048, 0, 0),
+                new TestResult(2, "Time Limit Exceeded", 2001, 2400, 4096, 124, 0),
+                new TestResult(3, "Runtime Error", 5, 9, 1024, 139, 11));
+
+        assertThat(roundTrip(results)).isEqualTo(results);
+    }
+
+    @Test
+    void roundTripsVerdictsWithCommasSpacesAndEscapes() {
+        List<TestResult> results = List.of(
+                new TestResult(1, "Wrong Answer, expected 3, got 4", 1, 2, 3, 0, 0),
+                new TestResult(2, "  leading and trailing  ", 1, 2, 3, 0, 0),
+                new TestResult(3, "100% done,\nnext line\r\n", 1, 2, 3, 0, 0),
+                new TestResult(4, "literal %2C and %", 1, 2, 3, 0, 0),
+                new TestResult(5, ",", 1, 2, 3, 0, 0));
+
+        assertThat(roundTrip(results)).isEqualTo(results);
+    }
+
+    @Test
+    void roundTripsNullExitCodesSignalsAndVerdicts() {
+        List<TestResult> results = List.of(
+                new TestResult(1, "Wrong Answer", 40, 50, 900, null, null),
+                new TestResult(2, "Output Limit Exceeded", 40, 50, 900, null, 0),
+                new TestResult(3, null, -1, -1, -1, 137, null));
+
+        assertThat(roundTrip(results)).isEqualTo(results);
+    }
+
+    @Test
+    void storesAnEmptyListAsNull() {
+        assertThat(converter.convertToDatabaseColumn(List.of())).isNull();
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isEmpty();
+        assertThat(converter.convertToEntityAttribute("")).isEmpty();
+    }
+
+    @Test
+    void readsColumnsWrittenBeforeEscaping() {
+        assertThat(converter.convertToEntityAttribute("1,Accepted,12,30,2048,0,0\n2,Wrong Answer,7,8,900,0,0\n"))
+                .containsExactly(
+                        new TestResult(1, "Accepted", 12, 30, 2048, 0, 0),
+                        new TestResult(2, "Wrong Answer", 7, 8, 900, 0, 0));
+    }
+
+    @Test
+    void writesOneLinePerTest() {
+        String column = converter.convertToDatabaseColumn(List.of(
+                new TestResult(1, "Wrong Answer, twice", 1, 2, 3, null, null),
+                new TestResult(2, "Accepted", 4, 5, 6, 0, 0)));
+
+        assertThat(column).isEqualTo("1,Wrong Answer%2C twice,1,2,3,,\n2,Accepted,4,5,6,0,0\n");
+    }
+
+    private List<TestResult> roundTrip(List<TestResult> results) {
+        return converter.convertToEntityAttribute(converter.convertToDatabaseColumn(results));
+    }
+}
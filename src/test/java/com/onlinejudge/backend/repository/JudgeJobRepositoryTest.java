@@ -0,0 +1,90 @@
+package com.onlinejudge.backend.repository;
+
+import com.onlinejudge.backend.PostgresIntegrationTest;
+import com.onlinejudge.backend.model.JudgeJob;
+import com.onlinejudge.backend.model.JudgeJobStatus;
+import com.onlinejudge.backend.model.JudgeLane;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledIfEnvironmentVariable(named = "JUDGE_TEST_DATABASE_URL", matches = ".+")
+class JudgeJobRepositoryTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JudgeJobRepository judgeJobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void emptyQueue() {
+        judgeJobRepository.deleteAll();
+    }
+
+    @Test
+    void burstOfOneUserIsInterleavedWithOthers() {
+        for (int i = 0; i < 4; i++) {
+            save(JudgeLane.LIVE, 1L, 1, JudgeJobStatus.QUEUED);
+        }
+        for (int i = 0; i < 2; i++) {
+            save(JudgeLane.LIVE, 2L, 1, JudgeJobStatus.QUEUED);
+        }
+        for (int i = 0; i < 4; i++) {
+            save(JudgeLane.LIVE, 3L, 2, JudgeJobStatus.QUEUED);
+        }
+
+        // User 3 has weight 2, so two turns for every one of the others; ties go to the older job
+        assertThat(lockQueued(JudgeLane.LIVE, 100)).extracting(JudgeJob::getUserId)
+                .containsExactly(3L, 1L, 2L, 3L, 3L, 1L, 2L, 3L, 1L, 1L);
+    }
+
+    @Test
+    void runningJobsCountAgainstTheirUsersTurn() {
+        save(JudgeLane.LIVE, 1L, 1, JudgeJobStatus.RUNNING);
+        save(JudgeLane.LIVE, 1L, 1, JudgeJobStatus.RUNNING);
+        save(JudgeLane.LIVE, 1L, 1, JudgeJobStatus.QUEUED);
+        save(JudgeLane.LIVE, 1L, 1, JudgeJobStatus.QUEUED);
+        save(JudgeLane.LIVE, 2L, 1, JudgeJobStatus.QUEUED);
+        save(JudgeLane.LIVE, 2L, 1, JudgeJobStatus.QUEUED);
+
+        assertThat(lockQueued(JudgeLane.LIVE, 100)).extracting(JudgeJob::getUserId)
+                .containsExactly(2L, 2L, 1L, 1L);
+    }
+
+    @Test
+    void onlyTheLanesQueuedJobsAreReturnedUpToTheLimit() {
+        save(JudgeLane.RUN, 1L, 1, JudgeJobStatus.QUEUED);
+        save(JudgeLane.LIVE, 1L, 1, JudgeJobStatus.RUNNING);
+        JudgeJob first = save(JudgeLane.LIVE, 2L, 1, JudgeJobStatus.QUEUED);
+        save(JudgeLane.LIVE, 2L, 1, JudgeJobStatus.QUEUED);
+
+        assertThat(lockQueued(JudgeLane.LIVE, 1)).extracting(JudgeJob::getId).containsExactly(first.getId());
+        assertThat(lockQueued(JudgeLane.REJUDGE, 10)).isEmpty();
+    }
+
+    // FOR UPDATE needs a read-write transaction, as JudgeJobStore.claim gives it
+    private List<JudgeJob> lockQueued(JudgeLane lane, int limit) {
+        return new TransactionTemplate(transactionManager)
+                .execute(status -> judgeJobRepository.lockQueued(lane.name(), List.of("cpp"), limit));
+    }
+
+    private JudgeJob save(JudgeLane lane, Long userId, int weight, JudgeJobStatus status) {
+        return judgeJobRepository.save(JudgeJob.builder()
+                .lane(lane)
+                .language("cpp")
+                .userId(userId)
+                .weight(weight)
+                .status(status)
+                .createdAt(Instant.now())
+                .build());
+    }
+}